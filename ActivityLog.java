@@ -0,0 +1,157 @@
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import javax.swing.AbstractListModel;
+
+/**
+ * List model behind the GUI's activity log: a fixed-capacity ring of log records,
+ * so a long run keeps only the newest {@code capacity} lines in constant memory.
+ *
+ * Records are stored column-wise (level, timestamp, message) and turned into text
+ * only when the JList asks for a visible row. Every level keeps an index of the
+ * sequence numbers of its records, so switching the filter or looking up a row of
+ * a filtered view never rescans the history. All methods run on the EDT.
+ */
+class ActivityLog extends AbstractListModel<String> {
+
+    enum Level {
+        INFO, DEBUG;
+
+        /** Splits a "LEVEL: message" line as produced by CarWashModel.fireLogWithLevel. */
+        static Level of(String line) {
+            for (Level level : LEVELS) {
+                String name = level.name();
+                if (line.length() > name.length() + 1 && line.startsWith(name) && line.charAt(name.length()) == ':') {
+                    return level;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** A record on its way from a producer thread to the EDT. */
+    static final class Entry {
+        final Level level;
+        final long timestampMillis;
+        final String message;
+
+        Entry(Level level, long timestampMillis, String message) {
+            this.level = level;
+            this.timestampMillis = timestampMillis;
+            this.message = message;
+        }
+
+        /** Parses a model log line; lines without a known level prefix count as INFO. */
+        static Entry parse(String line, long timestampMillis) {
+            Level level = Level.of(line);
+            if (level == null) return new Entry(Level.INFO, timestampMillis, line);
+            return new Entry(level, timestampMillis, line.substring(level.name().length() + 2));
+        }
+    }
+
+    /** Sequence numbers of one level's records, oldest first, in a ring of its own. */
+    private static final class LevelIndex {
+        final long[] seqs;
+        long start;
+        long end;
+
+        LevelIndex(int capacity) {
+            seqs = new long[capacity];
+        }
+
+        int size() {
+            return (int) (end - start);
+        }
+
+        long get(int i) {
+            return seqs[(int) ((start + i) % seqs.length)];
+        }
+    }
+
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final Level[] LEVELS = Level.values();
+
+    private final int capacity;
+    private final byte[] levels;
+    private final long[] timestamps;
+    private final String[] messages;
+    private final LevelIndex[] indexes = new LevelIndex[LEVELS.length];
+    private final ZoneId zone = ZoneId.systemDefault();
+    // sequence number of the next record; the ring holds [appended - size, appended)
+    private long appended;
+    // null shows every level
+    private Level filter;
+
+    ActivityLog(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Log capacity must be positive.");
+        this.capacity = capacity;
+        this.levels = new byte[capacity];
+        this.timestamps = new long[capacity];
+        this.messages = new String[capacity];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new LevelIndex(capacity);
+        }
+    }
+
+    void append(List<Entry> entries) {
+        if (entries.isEmpty()) return;
+        int oldSize = getSize();
+        int removed = 0;
+        for (Entry e : entries) {
+            long seq = appended++;
+            int slot = (int) (seq % capacity);
+            if (seq >= capacity) {
+                // overwriting the oldest record: drop it from its level index too
+                LevelIndex evicted = indexes[levels[slot]];
+                evicted.start++;
+                if (filter == null || filter.ordinal() == levels[slot]) removed++;
+            }
+            levels[slot] = (byte) e.level.ordinal();
+            timestamps[slot] = e.timestampMillis;
+            messages[slot] = e.message;
+            LevelIndex index = indexes[e.level.ordinal()];
+            index.seqs[(int) (index.end % capacity)] = seq;
+            index.end++;
+        }
+        // rows that were added and evicted within this batch never reached the view
+        removed = Math.min(removed, oldSize);
+        if (removed > 0) fireIntervalRemoved(this, 0, removed - 1);
+        int newSize = getSize();
+        int firstAdded = oldSize - removed;
+        if (newSize > firstAdded) fireIntervalAdded(this, firstAdded, newSize - 1);
+    }
+
+    /** Shows only records of the given level, or everything for null. */
+    void setFilter(Level level) {
+        int oldSize = getSize();
+        filter = level;
+        if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+        int newSize = getSize();
+        if (newSize > 0) fireIntervalAdded(this, 0, newSize - 1);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int getSize() {
+        if (filter == null) return (int) Math.min(appended, capacity);
+        return indexes[filter.ordinal()].size();
+    }
+
+    @Override
+    public String getElementAt(int row) {
+        long seq;
+        if (filter == null) {
+            seq = appended - getSize() + row;
+        } else {
+            seq = indexes[filter.ordinal()].get(row);
+        }
+        int slot = (int) (seq % capacity);
+        String time = LocalTime.ofInstant(Instant.ofEpochMilli(timestamps[slot]), zone).format(TIME_FMT);
+        return time + " - " + LEVELS[levels[slot]] + ": " + messages[slot];
+    }
+}
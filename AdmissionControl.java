@@ -0,0 +1,112 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How a station sheds load instead of letting blocked cars pile up. Each policy is
+ * optional; with none of them a car waits as long as it takes, as it always did.
+ *
+ * <ul>
+ * <li>Balking: a car that finds the waiting area full (or no token free) leaves at once.</li>
+ * <li>Patience: a car gives up (reneges) once it has waited this long since arriving
+ *     without a pump starting on it, whether it was still outside or already queued.</li>
+ * <li>Token bucket: cars are let in at most at {@code rate} per second with bursts of
+ *     {@code burst}; a car waits for its token, or is rejected if the token would come
+ *     later than the bucket's maximum wait or after its patience runs out. The maximum
+ *     wait defaults to the time the bucket takes to refill a whole burst, so cars
+ *     queueing for tokens stay bounded even without patience.</li>
+ * </ul>
+ *
+ * Waits use the station clock, so the policies behave the same in headless runs.
+ */
+class AdmissionControl {
+
+    /**
+     * Generic cell rate algorithm: the token bucket kept as a single timestamp, the
+     * theoretical arrival time of the next car, so cars take tokens with one CAS.
+     */
+    static final class TokenBucket {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong nextFree = new AtomicLong(Long.MIN_VALUE);
+
+        TokenBucket(double ratePerSecond, int burst) {
+            this.intervalNanos = Math.max(1, Math.round(1_000_000_000.0 / ratePerSecond));
+            this.burstNanos = (burst - 1) * intervalNanos;
+        }
+
+        /**
+         * Takes a token at station time {@code now} if one is free within
+         * {@code maxDelayNanos}; returns how long to wait for it, or -1 (and takes
+         * nothing) if it would come later.
+         */
+        long reserve(long now, long maxDelayNanos) {
+            while (true) {
+                long current = nextFree.get();
+                long due = Math.max(current, now);
+                long delay = Math.max(0, due - burstNanos - now);
+                if (delay > maxDelayNanos) return -1;
+                if (nextFree.compareAndSet(current, due + intervalNanos)) return delay;
+            }
+        }
+    }
+
+    final boolean balk;
+    // -1: no limit
+    final long patienceNanos;
+    // null: no arrival shaping
+    private final TokenBucket bucket;
+    // longest a car waits for its token
+    private final long tokenWaitNanos;
+    private final SimClock clock;
+
+    AdmissionControl(StationConfig config, SimClock clock) {
+        this.clock = clock;
+        this.balk = config.balk;
+        this.patienceNanos = config.patienceMillis < 0 ? -1 : config.patienceMillis * 1_000_000L;
+        this.bucket = config.tokenRate > 0 ? new TokenBucket(config.tokenRate, config.tokenBurst) : null;
+        this.tokenWaitNanos = config.tokenMaxWaitMillis >= 0 ? config.tokenMaxWaitMillis * 1_000_000L
+                : config.tokenRate > 0 ? Math.round(config.tokenBurst * 1_000_000_000.0 / config.tokenRate) : 0;
+    }
+
+    boolean hasPatience() {
+        return patienceNanos >= 0;
+    }
+
+    /** Station time at which a car that arrived at {@code arrivalNanos} gives up; Long.MAX_VALUE if never. */
+    long deadline(long arrivalNanos) {
+        return hasPatience() ? arrivalNanos + patienceNanos : Long.MAX_VALUE;
+    }
+
+    /**
+     * Waits for a token if arrivals are shaped; false if the car is rejected instead,
+     * because the token would come after the maximum wait or after {@code deadline}.
+     */
+    boolean awaitToken(long deadline) throws InterruptedException {
+        if (bucket == null) return true;
+        long now = clock.nanoTime();
+        // deadline - now overflows for the no-patience deadline when the clock reads negative
+        long maxDelay = deadline == Long.MAX_VALUE ? tokenWaitNanos : Math.min(tokenWaitNanos, deadline - now);
+        long delay = bucket.reserve(now, balk ? 0 : maxDelay);
+        if (delay < 0) return false;
+        if (delay > 0) clock.sleep(toMillis(delay));
+        return true;
+    }
+
+    /** Takes a place in the waiting area; false if the car balked or ran out of patience first. */
+    boolean enter(Semaphore empty, long deadline) throws InterruptedException {
+        if (balk) return empty.tryWaitSemaphore(0);
+        if (!hasPatience()) {
+            empty.waitSemaphore();
+            return true;
+        }
+        return empty.tryWaitSemaphore(millisUntil(deadline));
+    }
+
+    /** Milliseconds of station time left until {@code deadline}, rounded up; 0 once it has passed. */
+    long millisUntil(long deadline) {
+        return toMillis(deadline - clock.nanoTime());
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos <= 0 ? 0 : (nanos + 999_999) / 1_000_000;
+    }
+}
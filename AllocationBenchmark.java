@@ -0,0 +1,76 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap bytes allocated per car in a steady-state headless run.
+ *
+ * Runs the station with a short and a long arrival stream and divides the
+ * difference in allocated bytes by the difference in cars, so start-up costs
+ * (histograms, thread pools, the station itself) cancel out. The counts come from
+ * the JVM's per-thread allocation counters, which only cover platform threads, so
+ * the runs use the pooled thread mode.
+ *
+ * Usage: java AllocationBenchmark [shortRun] [longRun] [more ServiceStation flags...]
+ */
+public class AllocationBenchmark {
+
+    public static void main(String[] args) {
+        long shortRun = args.length > 0 ? Long.parseLong(args[0]) : 20_000;
+        long longRun = args.length > 1 ? Long.parseLong(args[1]) : 120_000;
+        List<String> flags = new ArrayList<>(List.of("--headless", "--quiet", "--threads=pooled", "--seed=1",
+                "--capacity=5", "--pumps=3"));
+        if (args.length > 2) flags.addAll(Arrays.asList(args).subList(2, args.length));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            System.out.println("This JVM does not count allocated bytes per thread.");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.println("Allocation per car: " + String.join(" ", flags));
+        // first pass warms up the JIT, the others are reported
+        run(threads, flags, shortRun);
+        long small = run(threads, flags, shortRun);
+        long large = run(threads, flags, longRun);
+        System.out.println(String.format("  %d cars: %,d bytes", shortRun, small));
+        System.out.println(String.format("  %d cars: %,d bytes", longRun, large));
+        System.out.println(String.format("  steady state: %.1f bytes per car", (double) (large - small) / (longRun - shortRun)));
+    }
+
+    /** Bytes allocated by every platform thread while the station runs {@code cars} cars. */
+    private static long run(com.sun.management.ThreadMXBean threads, List<String> flags, long cars) {
+        List<String> args = new ArrayList<>(flags);
+        args.add("--cars=" + cars);
+        Map<Long, Long> before = allocatedByThread(threads);
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            ServiceStation.main(args.toArray(new String[0]));
+        } finally {
+            System.setOut(out);
+        }
+        // threads that ended during the run are lost; the pools keep theirs alive
+        long total = 0;
+        for (Map.Entry<Long, Long> e : allocatedByThread(threads).entrySet()) {
+            total += e.getValue() - before.getOrDefault(e.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static Map<Long, Long> allocatedByThread(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> byThread = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) byThread.put(ids[i], bytes[i]);
+        }
+        return byThread;
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Sends every car to the bay that is expected to finish it first, among the bays
+ * that offer its service type.
+ *
+ * Bays sit in an indexed binary min-heap keyed by the station time each becomes
+ * free, with every bay's heap position tracked so its key can be updated in
+ * place. A bay further down the heap is never free earlier than its parent, so
+ * the search walks the heap from the root and cuts off every subtree whose root
+ * could not beat the best completion found so far even at the fastest speed for
+ * the type. With mixed equipment that is usually a handful of bays, not all of
+ * them. Not thread-safe: the caller routes under its own lock.
+ *
+ * A car is booked for what its pump will spend on it (see
+ * {@link ServiceStation#serviceMillisAt}), plus the batch setup if it is expected
+ * to start a new service run: when the cars queued ahead of it at that bay fill
+ * whole batches.
+ */
+class BayRouter {
+
+    /** What one bay can do: the service types it offers and how fast it is. */
+    static final class BaySpec {
+        // bit i set: offers ServiceType.values()[i]
+        final int types;
+        final double speed;
+
+        BaySpec(int types, double speed) {
+            this.types = types;
+            this.speed = speed;
+        }
+
+        boolean supports(ServiceType type) {
+            return (types & (1 << type.ordinal())) != 0;
+        }
+
+        /** How long this bay takes for {@code millis} of service at speed 1. */
+        long serviceMillis(long millis) {
+            return Math.round(millis / speed);
+        }
+
+        String label() {
+            StringBuilder sb = new StringBuilder();
+            for (ServiceType type : ServiceType.values()) {
+                if (supports(type)) sb.append(sb.length() == 0 ? "" : "+").append(type.label);
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Parses {@code --bays}: comma-separated bays, each a {@code +}-separated list of
+         * service types with an optional {@code @speed}, e.g. {@code basic+express@1.5}.
+         */
+        static BaySpec[] parseAll(String value) {
+            String[] parts = value.split(",");
+            BaySpec[] bays = new BaySpec[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                String part = parts[i].trim();
+                double speed = 1;
+                int at = part.indexOf('@');
+                if (at >= 0) {
+                    try {
+                        speed = Double.parseDouble(part.substring(at + 1));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid bay speed: " + part);
+                    }
+                    if (!(speed > 0)) throw new IllegalArgumentException("Bay speed must be positive: " + part);
+                    part = part.substring(0, at);
+                }
+                int types = 0;
+                for (String type : part.split("\\+")) {
+                    types |= 1 << ServiceType.parse(type.trim()).ordinal();
+                }
+                bays[i] = new BaySpec(types, speed);
+            }
+            return bays;
+        }
+    }
+
+    private final BaySpec[] bays;
+    private final int batchSize;
+    private final long batchSetupMillis;
+    // -1: each car takes its own service time
+    private final long batchCarMillis;
+    // station time each bay is expected to be free, in ns
+    private final long[] freeAt;
+    // cars routed to each bay that its pump has not taken yet
+    private final int[] queued;
+    // bay indexes ordered by freeAt, and where each bay sits in it
+    private final int[] heap;
+    private final int[] position;
+    // per service type, the speed of the fastest bay offering it
+    private final double[] fastest = new double[ServiceType.values().length];
+    // heap indexes still to visit during a search
+    private final int[] stack;
+
+    BayRouter(BaySpec[] bays, int batchSize, long batchSetupMillis, long batchCarMillis) {
+        this.bays = bays;
+        this.batchSize = batchSize;
+        this.batchSetupMillis = batchSetupMillis;
+        this.batchCarMillis = batchCarMillis;
+        this.freeAt = new long[bays.length];
+        this.queued = new int[bays.length];
+        this.heap = new int[bays.length];
+        this.position = new int[bays.length];
+        this.stack = new int[bays.length];
+        for (int i = 0; i < bays.length; i++) {
+            heap[i] = i;
+            position[i] = i;
+            for (ServiceType type : ServiceType.values()) {
+                if (bays[i].supports(type)) fastest[type.ordinal()] = Math.max(fastest[type.ordinal()], bays[i].speed);
+            }
+        }
+    }
+
+    /** Whether some bay offers {@code type}. */
+    boolean offers(ServiceType type) {
+        return fastest[type.ordinal()] > 0;
+    }
+
+    /**
+     * Picks the bay (0-based) that would finish {@code car} earliest, counting from
+     * {@code now}, books it until then and records the bay and booking on the car.
+     */
+    int route(Car car, long now) {
+        ServiceType type = car.getServiceType();
+        long millis = batchCarMillis >= 0 ? batchCarMillis : car.getServiceMillis();
+        // no bay is faster than the fastest, and none can skip the service itself
+        long bound = Math.round(millis / fastest[type.ordinal()]) * 1_000_000L;
+        int best = -1;
+        long bestDone = Long.MAX_VALUE;
+        long bestCost = 0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int i = stack[--top];
+            int bay = heap[i];
+            long start = Math.max(now, freeAt[bay]);
+            // nothing in this subtree starts earlier, nor runs faster than the fastest bay
+            if (start + bound >= bestDone) continue;
+            if (bays[bay].supports(type)) {
+                long cost = costNanos(bay, millis);
+                if (start + cost < bestDone) {
+                    bestDone = start + cost;
+                    bestCost = cost;
+                    best = bay;
+                }
+            }
+            int child = 2 * i + 1;
+            if (child + 1 < heap.length) stack[top++] = child + 1;
+            if (child < heap.length) stack[top++] = child;
+        }
+        if (best < 0) throw new IllegalArgumentException("No bay offers " + type.label + " service.");
+        freeAt[best] = bestDone;
+        queued[best]++;
+        siftDown(position[best]);
+        car.routeTo(best + 1, bestCost);
+        return best;
+    }
+
+    /** The pump of {@code bay} (0-based) has taken {@code count} of its cars. */
+    void taken(int bay, int count) {
+        queued[bay] -= count;
+    }
+
+    /** Gives back the booking of a car that left {@code bay} (0-based) without service. */
+    void cancel(int bay, long bookedNanos) {
+        freeAt[bay] -= bookedNanos;
+        siftUp(position[bay]);
+    }
+
+    private long costNanos(int bay, long millis) {
+        long cost = bays[bay].serviceMillis(millis);
+        if (queued[bay] % batchSize == 0) cost += batchSetupMillis;
+        return cost * 1_000_000L;
+    }
+
+    /** Moves a bay whose key grew down to its place. */
+    private void siftDown(int i) {
+        int bay = heap[i];
+        long key = freeAt[bay];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heap.length) break;
+            if (child + 1 < heap.length && freeAt[heap[child + 1]] < freeAt[heap[child]]) child++;
+            if (freeAt[heap[child]] >= key) break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = bay;
+        position[bay] = i;
+    }
+
+    /** Moves a bay whose key shrank up to its place. */
+    private void siftUp(int i) {
+        int bay = heap[i];
+        long key = freeAt[bay];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (freeAt[heap[parent]] <= key) break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = bay;
+        position[bay] = i;
+    }
+}
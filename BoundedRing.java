@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Preallocated lock-free multi-producer/multi-consumer ring (Vyukov's bounded
+ * queue). Every slot carries a sequence number that says whether it is free for the
+ * producer at a given position or holds an element for the consumer at that
+ * position, so producers and consumers only CAS the tail or head counter and never
+ * share a lock or allocate a node.
+ */
+class BoundedRing<T> {
+
+    /** AtomicLong padded onto its own cache line so head and tail do not false-share. */
+    @SuppressWarnings("unused")
+    private static final class PaddedCounter extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private final PaddedCounter head = new PaddedCounter();
+    private final PaddedCounter tail = new PaddedCounter();
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<T> slots;
+    private final int capacity;
+
+    BoundedRing(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Ring capacity must be positive.");
+        this.capacity = capacity;
+        this.sequences = new AtomicLongArray(capacity);
+        this.slots = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /** Adds an element, or returns false if the ring is full. */
+    boolean offer(T element) {
+        for (;;) {
+            long pos = tail.get();
+            int index = (int) (pos % capacity);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(index, element);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /** Removes the oldest element, or returns null if there is none ready. */
+    T poll() {
+        for (;;) {
+            long pos = head.get();
+            int index = (int) (pos % capacity);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    T element = slots.get(index);
+                    slots.lazySet(index, null);
+                    sequences.set(index, pos + capacity);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Adds an element when the caller already knows a slot is free (e.g. it holds a
+     * permit for one); only spins while a consumer is still releasing that slot.
+     */
+    void put(T element) {
+        for (int spins = 0; !offer(element); spins++) {
+            backOff(spins);
+        }
+    }
+
+    /**
+     * Removes an element when the caller already knows one is there; only spins while
+     * its producer is still publishing it.
+     */
+    T take() {
+        for (int spins = 0; ; spins++) {
+            T element = poll();
+            if (element != null) return element;
+            backOff(spins);
+        }
+    }
+
+    int size() {
+        long n = tail.get() - head.get();
+        if (n < 0) return 0;
+        return (int) Math.min(n, capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** Total number of elements ever added. */
+    long produced() {
+        return tail.get();
+    }
+
+    static void backOff(int spins) {
+        if (spins < 64) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
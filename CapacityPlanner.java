@@ -0,0 +1,334 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sweeps pump count and waiting capacity and finds the cheapest station that keeps
+ * the 99th percentile wait (arrival until service start) under a target.
+ *
+ * Every configuration gets two answers. Queueing theory predicts it: Erlang C for
+ * the wait and for the chance that an arriving car finds the waiting area full and
+ * has to wait outside, since the station never turns a car away; M/M/c/K gives the
+ * share of cars a station would lose if they drove off instead. A discrete-event
+ * run ({@link EventSimulation}) checks it with the real workload generators. Under
+ * the FIFO scheduler the order cars start in does not depend on the waiting
+ * capacity, only where they wait does; so one run per pump count yields the waits
+ * and, for every capacity, the share of cars that found the area full. The pump
+ * counts are simulated in parallel on the fork-join pool.
+ *
+ * Usage: java CapacityPlanner [--max-pumps=N] [--max-capacity=N] [--cars=N] [--seed=N]
+ *        [--workload=uniform|poisson|mmpp|diurnal] [--arrival-rate=CARS_PER_S]
+ *        [--target-p99-ms=N] [--max-blocking=PERCENT] [--pump-cost=N] [--space-cost=N]
+ */
+public class CapacityPlanner {
+
+    static final class Options {
+        int maxPumps = 100;
+        int maxCapacity = 100;
+        long cars = 100_000;
+        long seed = 42;
+        WorkloadGenerator.Kind workload = WorkloadGenerator.Kind.POISSON;
+        double arrivalRate = 1.0;
+        double targetP99Millis = 1000;
+        double maxBlocking = 0.05;
+        double pumpCost = 10;
+        double spaceCost = 1;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("Unknown option: " + arg);
+                String name = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                try {
+                    switch (name) {
+                        case "--max-pumps": o.maxPumps = Integer.parseInt(value); break;
+                        case "--max-capacity": o.maxCapacity = Integer.parseInt(value); break;
+                        case "--cars": o.cars = Long.parseLong(value); break;
+                        case "--seed": o.seed = Long.parseLong(value); break;
+                        case "--workload": o.workload = WorkloadGenerator.Kind.parse(value); break;
+                        case "--arrival-rate": o.arrivalRate = Double.parseDouble(value); break;
+                        case "--target-p99-ms": o.targetP99Millis = Double.parseDouble(value); break;
+                        case "--max-blocking": o.maxBlocking = Double.parseDouble(value) / 100; break;
+                        case "--pump-cost": o.pumpCost = Double.parseDouble(value); break;
+                        case "--space-cost": o.spaceCost = Double.parseDouble(value); break;
+                        default: throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+                }
+            }
+            if (o.maxPumps <= 0 || o.maxCapacity <= 0 || o.cars <= 0) {
+                throw new IllegalArgumentException("Grid size and car count must be positive.");
+            }
+            if (!(o.arrivalRate > 0)) throw new IllegalArgumentException("Arrival rate must be positive.");
+            if (o.maxBlocking < 0 || o.maxBlocking > 1) {
+                throw new IllegalArgumentException("--max-blocking must be between 0 and 100.");
+            }
+            return o;
+        }
+
+        WorkloadGenerator newWorkload() {
+            return new WorkloadGenerator(workload, arrivalRate, 0, 1, seed);
+        }
+
+        double cost(int pumps, int capacity) {
+            return pumps * pumpCost + capacity * spaceCost;
+        }
+    }
+
+    /** What queueing theory expects of one configuration. Waits are infinite when the pumps cannot keep up. */
+    static final class Prediction {
+        final double meanWaitMillis;
+        final double p99WaitMillis;
+        // share of arrivals that find the waiting area full and wait outside
+        final double fullOnArrival;
+        // M/M/c/K: share of arrivals lost if those cars drove off instead
+        final double blocking;
+
+        Prediction(double meanWaitMillis, double p99WaitMillis, double fullOnArrival, double blocking) {
+            this.meanWaitMillis = meanWaitMillis;
+            this.p99WaitMillis = p99WaitMillis;
+            this.fullOnArrival = fullOnArrival;
+            this.blocking = blocking;
+        }
+    }
+
+    /** Simulated and predicted figures for one pump count, indexed by waiting capacity. */
+    static final class Row {
+        final int pumps;
+        double meanWaitMillis;
+        double p99WaitMillis;
+        // [capacity]: share of arrivals that found the waiting area full
+        final double[] blocked;
+        final Prediction[] predicted;
+
+        Row(int pumps, int maxCapacity) {
+            this.pumps = pumps;
+            this.blocked = new double[maxCapacity + 1];
+            this.predicted = new Prediction[maxCapacity + 1];
+        }
+    }
+
+    /** Splits the pump counts [from, to) until one is left and runs it. */
+    private static final class Sweep extends RecursiveAction {
+        private final Options options;
+        private final Row[] rows;
+        private final int from;
+        private final int to;
+
+        Sweep(Options options, Row[] rows, int from, int to) {
+            this.options = options;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                rows[from] = evaluate(from + 1, options);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Sweep(options, rows, from, mid), new Sweep(options, rows, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: java CapacityPlanner [--max-pumps=N] [--max-capacity=N] [--cars=N] [--seed=N]"
+                    + " [--workload=uniform|poisson|mmpp|diurnal] [--arrival-rate=CARS_PER_S]"
+                    + " [--target-p99-ms=N] [--max-blocking=PERCENT] [--pump-cost=N] [--space-cost=N]");
+            return;
+        }
+        WorkloadGenerator workload = options.newWorkload();
+        System.out.println(String.format(Locale.ROOT,
+                "Capacity plan: 1-%d pumps x 1-%d waiting spaces, %s arrivals at %.2f cars/s,"
+                        + " mean service %.0f ms, %d cars per pump count",
+                options.maxPumps, options.maxCapacity, options.workload.label(), workload.arrivalsPerSecond(),
+                workload.meanServiceMillis(), options.cars));
+        System.out.println(String.format(Locale.ROOT,
+                "Target: p99 wait <= %.0f ms, at most %.1f%% of arrivals find the waiting area full;"
+                        + " cost = %.0f per pump + %.0f per waiting space",
+                options.targetP99Millis, options.maxBlocking * 100, options.pumpCost, options.spaceCost));
+
+        long start = System.nanoTime();
+        Row[] rows = new Row[options.maxPumps];
+        ForkJoinPool.commonPool().invoke(new Sweep(options, rows, 0, rows.length));
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        int[] simulated = cheapest(rows, options, false);
+        int[] predicted = cheapest(rows, options, true);
+        printRows(rows, options, simulated != null ? simulated[0] : predicted != null ? predicted[0] : 0);
+
+        System.out.println();
+        if (simulated == null) {
+            System.out.println("No configuration in the grid meets the target in simulation.");
+        } else {
+            Row row = rows[simulated[0] - 1];
+            int capacity = simulated[1];
+            Prediction p = row.predicted[capacity];
+            System.out.println(String.format(Locale.ROOT, "Cheapest: %d pumps, %d waiting spaces (cost %.0f)",
+                    row.pumps, capacity, options.cost(row.pumps, capacity)));
+            System.out.println(String.format(Locale.ROOT,
+                    "  simulated: mean wait %.0f ms, p99 wait %.0f ms, %.2f%% find the area full",
+                    row.meanWaitMillis, row.p99WaitMillis, row.blocked[capacity] * 100));
+            System.out.println(String.format(Locale.ROOT,
+                    "  predicted: mean wait %s ms, p99 wait %s ms, %.2f%% find the area full"
+                            + " (M/M/c/K: %.2f%% lost if they drove off)",
+                    millis(p.meanWaitMillis), millis(p.p99WaitMillis), p.fullOnArrival * 100, p.blocking * 100));
+        }
+        if (predicted == null) {
+            System.out.println("The queueing model finds no configuration in the grid that meets the target.");
+        } else {
+            System.out.println(String.format(Locale.ROOT,
+                    "The queueing model alone would pick %d pumps, %d waiting spaces (cost %.0f)",
+                    predicted[0], predicted[1], options.cost(predicted[0], predicted[1])));
+        }
+        System.out.println(String.format(Locale.ROOT, "Evaluated %d configurations in %.2f s on %d fork-join workers.",
+                (long) options.maxPumps * options.maxCapacity, seconds, ForkJoinPool.commonPool().getParallelism()));
+    }
+
+    /** Pump count and capacity of the cheapest configuration meeting the target, or null. */
+    private static int[] cheapest(Row[] rows, Options options, boolean useModel) {
+        int[] best = null;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (Row row : rows) {
+            for (int capacity = 1; capacity <= options.maxCapacity; capacity++) {
+                Prediction p = row.predicted[capacity];
+                double p99 = useModel ? p.p99WaitMillis : row.p99WaitMillis;
+                double full = useModel ? p.fullOnArrival : row.blocked[capacity];
+                if (p99 > options.targetP99Millis || full > options.maxBlocking) continue;
+                double cost = options.cost(row.pumps, capacity);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = new int[] {row.pumps, capacity};
+                }
+            }
+        }
+        return best;
+    }
+
+    /** The pump counts around the chosen one, with the fewest waiting spaces each needs. */
+    private static void printRows(Row[] rows, Options options, int around) {
+        int from = Math.max(1, around - 5);
+        int to = around == 0 ? Math.min(rows.length, 10) : Math.min(rows.length, around + 3);
+        System.out.println();
+        System.out.println(String.format("%5s %14s %14s %14s %14s %14s", "pumps", "model mean ms", "model p99 ms",
+                "sim mean ms", "sim p99 ms", "spaces mdl/sim"));
+        for (int pumps = from; pumps <= to; pumps++) {
+            Row row = rows[pumps - 1];
+            Prediction p = row.predicted[1];
+            System.out.println(String.format(Locale.ROOT, "%5d %14s %14s %14.0f %14.0f %14s", pumps,
+                    millis(p.meanWaitMillis), millis(p.p99WaitMillis), row.meanWaitMillis, row.p99WaitMillis,
+                    spacesNeeded(row, options, true) + "/" + spacesNeeded(row, options, false)));
+        }
+    }
+
+    private static String spacesNeeded(Row row, Options options, boolean useModel) {
+        for (int capacity = 1; capacity <= options.maxCapacity; capacity++) {
+            double full = useModel ? row.predicted[capacity].fullOnArrival : row.blocked[capacity];
+            if (full <= options.maxBlocking) return String.valueOf(capacity);
+        }
+        return "-";
+    }
+
+    private static String millis(double ms) {
+        return Double.isInfinite(ms) ? "inf" : String.format(Locale.ROOT, "%.0f", ms);
+    }
+
+    /** Predictions for every capacity and one simulation run for {@code pumps} pumps. */
+    static Row evaluate(int pumps, Options options) {
+        Row row = new Row(pumps, options.maxCapacity);
+        WorkloadGenerator workload = options.newWorkload();
+        double arrivalsPerMs = workload.arrivalsPerSecond() / 1000;
+        for (int capacity = 1; capacity <= options.maxCapacity; capacity++) {
+            row.predicted[capacity] = predict(pumps, capacity, arrivalsPerMs, workload.meanServiceMillis());
+        }
+        simulate(row, workload, options.cars);
+        return row;
+    }
+
+    /**
+     * Erlang C for an M/M/c queue with unlimited room, which is what the station is:
+     * a car finds the waiting area full when {@code capacity} cars are queued ahead
+     * of it, with probability C * utilization^capacity. M/M/c/K with c + capacity
+     * places for the loss a station without room outside would see.
+     */
+    static Prediction predict(int pumps, int capacity, double arrivalsPerMs, double serviceMillis) {
+        double load = arrivalsPerMs * serviceMillis;
+        double utilization = load / pumps;
+
+        double meanWait = Double.POSITIVE_INFINITY;
+        double p99Wait = Double.POSITIVE_INFINITY;
+        double fullOnArrival = 1;
+        if (utilization < 1) {
+            // Erlang B by its recurrence, then C from B
+            double b = 1;
+            for (int n = 1; n <= pumps; n++) {
+                b = load * b / (n + load * b);
+            }
+            double c = b / (1 - utilization * (1 - b));
+            // the wait of a car that has to wait is exponential at rate (pumps - load) / service time
+            double drainMillis = serviceMillis / (pumps - load);
+            meanWait = c * drainMillis;
+            p99Wait = c <= 0.01 ? 0 : Math.log(c / 0.01) * drainMillis;
+            fullOnArrival = c * Math.pow(utilization, capacity);
+        }
+
+        // M/M/c/K state probabilities, in logs so that large loads do not overflow
+        int places = pumps + capacity;
+        double[] logTerm = new double[places + 1];
+        double max = 0;
+        for (int n = 1; n <= places; n++) {
+            logTerm[n] = logTerm[n - 1] + Math.log(n <= pumps ? load / n : utilization);
+            max = Math.max(max, logTerm[n]);
+        }
+        double sum = 0;
+        for (double t : logTerm) sum += Math.exp(t - max);
+        double blocking = Math.exp(logTerm[places] - max) / sum;
+        return new Prediction(meanWait, p99Wait, fullOnArrival, blocking);
+    }
+
+    /**
+     * Runs the workload through a FIFO station with {@code row.pumps} pumps. A car
+     * found the waiting area full if at least {@code capacity} earlier cars were still
+     * waiting for a pump when it arrived.
+     */
+    static void simulate(Row row, WorkloadGenerator workload, long cars) {
+        int maxCapacity = row.blocked.length - 1;
+        StationConfig config = new StationConfig();
+        config.waitingCapacity = maxCapacity;
+        config.numPumps = row.pumps;
+        config.numCars = cars;
+        EventSimulation simulation = new EventSimulation(config, workload);
+        simulation.countWaitingOnArrival(maxCapacity);
+        try {
+            simulation.run();
+        } catch (IOException e) {
+            // generators never fail; only trace replay reads a file
+            throw new UncheckedIOException(e);
+        }
+
+        LatencyHistogram.Snapshot s = simulation.stats.latency.snapshot(LatencyMetrics.Phase.WAIT);
+        row.meanWaitMillis = s.mean() / 1_000_000.0;
+        row.p99WaitMillis = s.percentile(99) / 1_000_000.0;
+        // blocked[capacity] = share of arrivals with at least capacity cars ahead
+        long[] waiting = simulation.waitingOnArrival();
+        long arrivals = 0;
+        for (long n : waiting) arrivals += n;
+        long atLeast = 0;
+        for (int capacity = maxCapacity; capacity >= 1; capacity--) {
+            atLeast += waiting[capacity];
+            row.blocked[capacity] = arrivals == 0 ? 0 : (double) atLeast / arrivals;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+class Car implements Runnable {
+
+    /** Customer class, for the priority scheduler. */
+    enum Priority {
+        /** Contract customers, served ahead of walk-ins. */
+        FLEET,
+        WALK_IN
+    }
+
+    // a car is reused for later arrivals once it has left (see CarPool), so
+    // everything but the station and the completion signal is reset on each trip
+    private long id;
+    private final ServiceStation station;
+    // drawn on arrival so every scheduler sees the same trace; schedulers that order
+    // by service time treat it as the car's expected service time
+    private long serviceMillis;
+    private Priority priority;
+    private ServiceType serviceType;
+    // 1-based bay the router queued the car at, 0 when bays are not routed, and the
+    // bay time booked for it, given back if it reneges
+    private int bay;
+    private long bookedNanos;
+    private final Semaphore serviced;
+    // queued -> claimed by a pump, or queued -> reneged; a reneged car stays in the
+    // waiting area until a pump skips it, and whichever of the two lets go of it last
+    // (see dropReference) recycles it
+    private static final int QUEUED = 0;
+    private static final int CLAIMED = 1;
+    private static final int RENEGED = 2;
+    private final AtomicInteger trip = new AtomicInteger();
+    private long arrivalTime;
+    private long serviceStartTime;
+    private long departureTime;
+    // nanosecond timestamps for the latency histograms
+    private long arrivalNanos;
+    private long queuedNanos;
+    private long serviceStartNanos;
+    private long serviceEndNanos;
+
+    public Car(long id, ServiceStation station, long serviceMillis, Priority priority, ServiceType serviceType) {
+        this.station = station;
+        this.serviced = new Semaphore(0, station.clock, station.stats.semaphore(StationStats.SemaphoreId.SERVICED));
+        reset(id, serviceMillis, priority, serviceType);
+    }
+
+    /** Readies a car that has left for its next trip as a new arrival. */
+    void reset(long id, long serviceMillis, Priority priority, ServiceType serviceType) {
+        this.id = id;
+        this.serviceMillis = serviceMillis;
+        this.priority = priority;
+        this.serviceType = serviceType;
+        this.bay = 0;
+        this.bookedNanos = 0;
+        this.arrivalTime = 0;
+        this.serviceStartTime = 0;
+        this.departureTime = 0;
+        this.trip.set(QUEUED);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /** Display name; built on each call, so only for the GUI, thread names and log text. */
+    public String getCarName() {
+        return "Car-" + id;
+    }
+
+    public long getServiceMillis() {
+        return serviceMillis;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public ServiceType getServiceType() {
+        return serviceType;
+    }
+
+    public int getBay() {
+        return bay;
+    }
+
+    long getBookedNanos() {
+        return bookedNanos;
+    }
+
+    void routeTo(int bay, long bookedNanos) {
+        this.bay = bay;
+        this.bookedNanos = bookedNanos;
+    }
+
+    /** Station time from arrival to the start of service; valid once a pump has started on the car. */
+    long getWaitNanos() {
+        return serviceStartNanos - arrivalNanos;
+    }
+
+    /** Station time at which the car entered the waiting area. */
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    /** Called by the pump that took the car; false if the car has reneged and must be skipped. */
+    boolean claim() {
+        return trip.compareAndSet(QUEUED, CLAIMED);
+    }
+
+    /**
+     * Called once by a reneged car on its way out and once by the pump that skips it;
+     * true for the second call, after which nobody holds the car any more.
+     */
+    boolean dropReference() {
+        return trip.incrementAndGet() == RENEGED + 2;
+    }
+
+    public void serviceCompleted() {
+        serviced.signalSemaphore();
+    }
+
+    public void recordArrival() {
+        this.arrivalTime = station.clock.currentTimeMillis();
+        this.arrivalNanos = station.clock.nanoTime();
+    }
+
+    public void recordQueued() {
+        this.queuedNanos = station.clock.nanoTime();
+    }
+
+    public void recordServiceStart() {
+        this.serviceStartTime = station.clock.currentTimeMillis();
+        this.serviceStartNanos = station.clock.nanoTime();
+    }
+
+    public void recordServiceEnd() {
+        this.serviceEndNanos = station.clock.nanoTime();
+    }
+
+    public void recordDeparture() {
+        this.departureTime = station.clock.currentTimeMillis();
+        long departureNanos = station.clock.nanoTime();
+
+        LatencyMetrics latency = station.stats.latency;
+        latency.record(LatencyMetrics.Phase.ARRIVAL_TO_QUEUE, queuedNanos - arrivalNanos);
+        latency.record(LatencyMetrics.Phase.QUEUE_TO_PUMP, serviceStartNanos - queuedNanos);
+        latency.record(LatencyMetrics.Phase.WAIT, serviceStartNanos - arrivalNanos);
+        station.stats.waitByPriority(priority).record(serviceStartNanos - arrivalNanos);
+        latency.record(LatencyMetrics.Phase.SERVICE, serviceEndNanos - serviceStartNanos);
+        latency.record(LatencyMetrics.Phase.END_TO_END, departureNanos - arrivalNanos);
+    }
+
+    public long getWaitingTime() {
+        if (serviceStartTime == 0 || arrivalTime == 0) return 0;
+        return serviceStartTime - arrivalTime;
+    }
+
+    public long getServiceTime() {
+        if (departureTime == 0 || serviceStartTime == 0) return 0;
+        return departureTime - serviceStartTime;
+    }
+
+    public long getTotalTime() {
+        if (departureTime == 0 || arrivalTime == 0) return 0;
+        return departureTime - arrivalTime;
+    }
+
+    @Override
+    public void run() {
+        // left: nobody else holds the car; reneged: a pump may still find it queued
+        boolean left = false;
+        boolean reneged = false;
+        try {
+            long workStart = station.clock.nanoTime();
+            recordArrival();
+            station.record(Journal.Event.ARRIVAL, 0, id, serviceMillis);
+            if (ServiceStation.logging()) station.logEvent(getCarName() + " arrived.");
+            AdmissionControl admission = station.admission;
+            long deadline = admission.deadline(arrivalNanos);
+            if (!admission.awaitToken(deadline)) {
+                turnAway(station.stats.carsRejected, " was turned away at the entrance.");
+                left = true;
+                return;
+            }
+            if (!admission.enter(station.empty, deadline)) {
+                if (admission.balk) {
+                    turnAway(station.stats.carsBalked, " found the waiting area full and drove off.");
+                } else {
+                    turnAway(station.stats.carsReneged, " gave up waiting for a place in the waiting area.");
+                }
+                left = true;
+                return;
+            }
+            // before put: schedulers that age cars order them by this timestamp
+            recordQueued();
+            station.record(Journal.Event.ENQUEUE, 0, id, 0);
+            station.waitingArea.put(this);
+            if (ServiceStation.logging()) {
+                // queuedCars reads the full permits without the waiting area's lock; this car has none yet
+                station.logEvent(getCarName() + " entered waiting area (Queue: " + (station.queuedCars() + 1) + ")");
+            }
+            station.fullFor(bay).signalSemaphore();
+            station.syncQueueToGUI();
+            if (ServiceStation.logging()) station.logEvent(getCarName() + " is waiting for service.");
+            if (!admission.hasPatience()) {
+                serviced.waitSemaphore();
+            } else if (!serviced.tryWaitSemaphore(admission.millisUntil(deadline))) {
+                if (trip.compareAndSet(QUEUED, RENEGED)) {
+                    reneged = true;
+                    station.waitingArea.abandoned(this);
+                    station.stats.carsReneged.increment();
+                    station.record(Journal.Event.ABANDON, 0, id, station.clock.nanoTime() - arrivalNanos);
+                    if (ServiceStation.logging()) station.logEvent(getCarName() + " gave up waiting for a pump.");
+                    return;
+                }
+                // a pump claimed it just in time: the service is under way
+                serviced.waitSemaphore();
+            }
+            recordDeparture();
+            station.record(Journal.Event.DEPARTURE, 0, id, 0);
+            if (ServiceStation.logging()) {
+                station.logEvent(getCarName() + " service completed, leaving. (Wait: " +
+                        getWaitingTime() + "ms, Service: " + getServiceTime() + "ms, Total: " + getTotalTime() + "ms)");
+            }
+            long workDuration = station.clock.nanoTime() - workStart;
+            station.stats.carWorkNanos.add(workDuration);
+            station.stats.carsServiced.increment();
+            left = true;
+        } catch (Exception e) {
+            station.logEvent(getCarName() + " encountered an error: " + e.getMessage());
+        } finally {
+            station.departed();
+            station.clock.deregister();
+            // the pump let go of this car before signalling it, so nobody else holds it;
+            // a car that failed half way may still be queued and is left to the GC
+            if (left || (reneged && dropReference())) station.cars.release(this);
+        }
+    }
+
+    /** Leaves before reaching the waiting area, counted in {@code counter}. */
+    private void turnAway(LongAdder counter, String reason) {
+        counter.increment();
+        station.turnedAway();
+        station.record(Journal.Event.ABANDON, 0, id, station.clock.nanoTime() - arrivalNanos);
+        if (ServiceStation.logging()) station.logEvent(getCarName() + reason);
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Recycles a station's cars. A car that has left goes back on a lock-free free
+ * list and the next arrival reuses it, together with its completion semaphore, so
+ * a long run allocates cars only until the pool covers the cars in flight.
+ */
+class CarPool {
+    private final ServiceStation station;
+    private final BoundedRing<Car> free;
+
+    CarPool(ServiceStation station, int capacity) {
+        this.station = station;
+        this.free = new BoundedRing<>(capacity);
+    }
+
+    /** A car for a new arrival: a recycled one if there is one, otherwise a new one. */
+    Car obtain(long id, long serviceMillis, Car.Priority priority, ServiceType serviceType) {
+        Car car = free.poll();
+        if (car == null) return new Car(id, station, serviceMillis, priority, serviceType);
+        car.reset(id, serviceMillis, priority, serviceType);
+        return car;
+    }
+
+    /** Takes back a car that has left; when the pool is full the car is left to the GC. */
+    void release(Car car) {
+        free.offer(car);
+    }
+}
@@ -1,22 +1,20 @@
 import java.awt.*;
-import java.beans.PropertyChangeEvent;
-import java.beans.PropertyChangeListener;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 
-public class CarWashGUI extends JFrame implements PropertyChangeListener {
+public class CarWashGUI extends JFrame {
 
     private final CarWashModel model;
+    private final GuiEventBus eventBus;
 
     private final DefaultListModel<String> queueModel = new DefaultListModel<>();
     private final JList<String> queueList = new JList<>(queueModel);
 
-    private final DefaultListModel<String> logModel = new DefaultListModel<>();
+    // newest lines only; older ones are overwritten so memory stays constant
+    private static final int LOG_CAPACITY = 10_000;
+    private final ActivityLog logModel = new ActivityLog(LOG_CAPACITY);
     private final JList<String> logList = new JList<>(logModel);
-    private final java.util.List<String> allLogs = new java.util.ArrayList<>();
 
     private JProgressBar[] progressBars;
     private JLabel[] carLabels;
@@ -26,17 +24,17 @@ public class CarWashGUI extends JFrame implements PropertyChangeListener {
     private final Color COLOR_BACKGROUND = Color.WHITE;
     private final Color COLOR_BORDER = new Color(200, 200, 200);
 
-    private final DateTimeFormatter timeFmt = DateTimeFormatter.ofPattern("HH:mm:ss");
-
     public CarWashGUI(CarWashModel model, Object unused, int queueCapacity) {
         super("Car Wash & Gas Station Simulation");
         this.model = model;
 
-        model.addPropertyChangeListener(this);
     initUi(model.getNumPumps(), queueCapacity);
     targetProgress = new int[progressBars.length];
     for (int i = 0; i < progressBars.length; i++) targetProgress[i] = 0;
     ensureAnimTimer();
+        // model events reach the EDT coalesced, at most once per frame
+        eventBus = new GuiEventBus(model, this, GuiEventBus.DEFAULT_FPS);
+        eventBus.start();
         pack();
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -100,6 +98,8 @@ public class CarWashGUI extends JFrame implements PropertyChangeListener {
         JPanel logPanel = new JPanel(new BorderLayout());
         logPanel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createLineBorder(COLOR_BORDER), "Activity Log"));
         logList.setVisibleRowCount(8);
+        // fixed cell size: the list only formats the rows it actually paints
+        logList.setPrototypeCellValue("00:00:00 - DEBUG: Pump 10: Car-1000 finishes service.");
         logPanel.add(new JScrollPane(logList), BorderLayout.CENTER);
 
         JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -146,7 +146,7 @@ public class CarWashGUI extends JFrame implements PropertyChangeListener {
         int ret = chooser.showSaveDialog(this);
         if (ret == JFileChooser.APPROVE_OPTION) {
             try (java.io.PrintWriter out = new java.io.PrintWriter(chooser.getSelectedFile())) {
-                for (int i = 0; i < logModel.size(); i++) out.println(logModel.get(i));
+                for (int i = 0; i < logModel.getSize(); i++) out.println(logModel.getElementAt(i));
                 model.fireLog("Log saved to " + chooser.getSelectedFile().getName());
             } catch (Exception ex) {
                 model.fireLog("Failed to save log: " + ex.getMessage());
@@ -154,37 +154,21 @@ public class CarWashGUI extends JFrame implements PropertyChangeListener {
         }
     }
 
-    private void appendLog(String msg) {
-        String entry = LocalTime.now().format(timeFmt) + " - " + msg;
-        synchronized (allLogs) {
-            allLogs.add(entry);
-        }
-        SwingUtilities.invokeLater(() -> {
-            // honor current filter (default ALL)
-            logModel.addElement(entry);
-            logList.ensureIndexIsVisible(logModel.size() - 1);
-        });
+    // EDT only; entries arrive timestamped from the event bus
+    void showLogs(List<ActivityLog.Entry> entries) {
+        logModel.append(entries);
+        if (logModel.getSize() > 0) logList.ensureIndexIsVisible(logModel.getSize() - 1);
     }
 
     private void applyLogFilter(String level) {
-        SwingUtilities.invokeLater(() -> {
-            logModel.clear();
-            synchronized (allLogs) {
-                for (String e : allLogs) {
-                    if ("ALL".equals(level) || e.startsWith(level + ":") || e.contains(" " + level + ":")) {
-                        logModel.addElement(e);
-                    }
-                }
-            }
-            if (!logModel.isEmpty()) logList.ensureIndexIsVisible(logModel.size() - 1);
-        });
+        logModel.setFilter("ALL".equals(level) ? null : ActivityLog.Level.valueOf(level));
+        if (logModel.getSize() > 0) logList.ensureIndexIsVisible(logModel.getSize() - 1);
     }
 
-    private void refreshQueue(List<String> snapshot) {
-        SwingUtilities.invokeLater(() -> {
-            queueModel.clear();
-            for (String s : snapshot) queueModel.addElement(s);
-        });
+    // EDT only
+    void showQueue(List<String> snapshot) {
+        queueModel.clear();
+        for (String s : snapshot) queueModel.addElement(s);
     }
 
     // animation support: target values per pump
@@ -242,56 +226,41 @@ public class CarWashGUI extends JFrame implements PropertyChangeListener {
         return new Color(204, 51, 51); // red
     }
 
-    @Override
-    public void propertyChange(PropertyChangeEvent evt) {
-        String name = evt.getPropertyName();
-        if ("queue".equals(name)) {
-            @SuppressWarnings("unchecked")
-            List<String> snapshot = (List<String>) evt.getNewValue();
-            refreshQueue(snapshot);
-        } else if (name != null && name.startsWith("pump")) {
-            // pumpN
-            int pumpId = Integer.parseInt(name.substring(4));
-            CarWashModel.PumpState ps = (CarWashModel.PumpState) evt.getNewValue();
-            SwingUtilities.invokeLater(() -> {
-                // animate smoothly to the new progress target
-                if (targetProgress == null || targetProgress.length != progressBars.length) {
-                    targetProgress = new int[progressBars.length];
-                }
-                targetProgress[pumpId] = ps.progress.get();
-                ensureAnimTimer();
-                animTimer.start();
-
-                if (ps.occupied) {
-                    // show percent next to car name for readability
-                        String display = ps.carName == null ? "Busy" : ps.carName;
-                        // use ASCII hyphen to avoid source-encoding mojibake in some editors/environments
-                        carLabels[pumpId].setText(display + " - " + ps.progress.get() + "%");
-                    carLabels[pumpId].setBackground(COLOR_OCCUPIED);
-                    carLabels[pumpId].setIcon(new CarIcon(Color.BLUE));
-                    // color bar according to percent
-                    progressBars[pumpId].setForeground(colorForPercent(ps.progress.get()));
-                } else {
-                    carLabels[pumpId].setText("Free");
-                    carLabels[pumpId].setBackground(COLOR_FREE);
-                    carLabels[pumpId].setIcon(null);
-                    // reset progress instantly if released
-                    progressBars[pumpId].setValue(0);
-                    progressBars[pumpId].setForeground(Color.LIGHT_GRAY);
-                }
-                // tooltip with remaining time
-                if (ps.remainingMs > 0) {
-                    long s = (ps.remainingMs + 999) / 1000;
-                    progressBars[pumpId].setToolTipText("Remaining: " + s + "s");
-                    carLabels[pumpId].setToolTipText("Remaining: " + s + "s");
-                } else {
-                    progressBars[pumpId].setToolTipText(null);
-                    carLabels[pumpId].setToolTipText(null);
-                }
-            });
-        } else if ("log".equals(name)) {
-            String msg = (String) evt.getNewValue();
-            appendLog(msg);
+    // EDT only: show the latest state of one pump
+    void showPump(int pumpId, CarWashModel.PumpState ps) {
+        // animate smoothly to the new progress target
+        if (targetProgress == null || targetProgress.length != progressBars.length) {
+            targetProgress = new int[progressBars.length];
+        }
+        targetProgress[pumpId] = ps.progress.get();
+        ensureAnimTimer();
+        animTimer.start();
+
+        if (ps.occupied) {
+            // show percent next to car name for readability
+                String display = ps.carName == null ? "Busy" : ps.carName;
+                // use ASCII hyphen to avoid source-encoding mojibake in some editors/environments
+                carLabels[pumpId].setText(display + " - " + ps.progress.get() + "%");
+            carLabels[pumpId].setBackground(COLOR_OCCUPIED);
+            carLabels[pumpId].setIcon(new CarIcon(Color.BLUE));
+            // color bar according to percent
+            progressBars[pumpId].setForeground(colorForPercent(ps.progress.get()));
+        } else {
+            carLabels[pumpId].setText("Free");
+            carLabels[pumpId].setBackground(COLOR_FREE);
+            carLabels[pumpId].setIcon(null);
+            // reset progress instantly if released
+            progressBars[pumpId].setValue(0);
+            progressBars[pumpId].setForeground(Color.LIGHT_GRAY);
+        }
+        // tooltip with remaining time
+        if (ps.remainingMs > 0) {
+            long s = (ps.remainingMs + 999) / 1000;
+            progressBars[pumpId].setToolTipText("Remaining: " + s + "s");
+            carLabels[pumpId].setToolTipText("Remaining: " + s + "s");
+        } else {
+            progressBars[pumpId].setToolTipText(null);
+            carLabels[pumpId].setToolTipText(null);
         }
     }
 }
@@ -41,6 +41,12 @@ public class CarWashModel {
         return s;
     }
 
+    public boolean removeFromQueue(String car) {
+        boolean removed = queue.remove(car);
+        if (removed) fireQueueChanged();
+        return removed;
+    }
+
     public List<String> getQueueSnapshot() {
         List<String> list = new ArrayList<>(queue);
         return Collections.unmodifiableList(list);
@@ -104,8 +110,10 @@ public class CarWashModel {
     public void addPropertyChangeListener(PropertyChangeListener l) { pcs.addPropertyChangeListener(l); }
     public void removePropertyChangeListener(PropertyChangeListener l) { pcs.removePropertyChangeListener(l); }
 
+    // no payload: copying the queue for every change is wasted work when listeners
+    // coalesce updates, so they call getQueueSnapshot() when they redraw
     private void fireQueueChanged() {
-        pcs.firePropertyChange("queue", null, getQueueSnapshot());
+        pcs.firePropertyChange("queue", null, null);
     }
 
     private void firePumpChanged(int pumpId) {
@@ -119,4 +127,15 @@ public class CarWashModel {
         String full = level + ": " + message;
         pcs.firePropertyChange("log", null, full);
     }
+
+    // several INFO lines in one event; the list is copied because callers reuse theirs
+    public void fireLogBatch(List<String> messages) {
+        if (messages.size() == 1) {
+            fireLog(messages.get(0));
+            return;
+        }
+        List<String> batch = new ArrayList<>(messages.size());
+        for (String m : messages) batch.add("INFO: " + m);
+        pcs.firePropertyChange("logBatch", null, Collections.unmodifiableList(batch));
+    }
 }
@@ -0,0 +1,306 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in contention profile of the station semaphores ({@code --profile=PATH}).
+ *
+ * On top of the always-on counters it records, for every semaphore of every
+ * station, a histogram of blocked waits and the number of threads already queued
+ * when a thread blocks, and for every call site that blocked how often and for how
+ * long. It also keeps a timeline: each blocked wait, each period a thread held the
+ * mutex or a pump bay, and the waiter queue length over time. The timeline is
+ * written as Chrome trace JSON, which chrome://tracing and Perfetto show as a flame
+ * chart per thread. Times are station time, like the rest of the statistics.
+ *
+ * The semaphores only call in here on the blocking path and around acquire and
+ * release while profiling is on; with it off the cost is one static field read.
+ */
+class ContentionProfiler {
+
+    private static final StationStats.SemaphoreId[] SEMAPHORES = StationStats.SemaphoreId.values();
+    // frames above the semaphore that make up a call site
+    private static final int SITE_DEPTH = 2;
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private static final byte WAIT = 0;
+    private static final byte HOLD = 1;
+    private static final byte QUEUE = 2;
+
+    /** Profile of one semaphore of one station. */
+    private static final class SemaphoreProfile {
+        final LatencyHistogram waits = new LatencyHistogram();
+        final LongAdder blocks = new LongAdder();
+        final LongAdder queuedAhead = new LongAdder();
+        final AtomicInteger maxQueue = new AtomicInteger();
+
+        void blocking(int queueLength) {
+            blocks.increment();
+            queuedAhead.add(queueLength - 1);
+            int max = maxQueue.get();
+            while (queueLength > max && !maxQueue.compareAndSet(max, queueLength)) {
+                max = maxQueue.get();
+            }
+        }
+    }
+
+    /** Blocked waits on one semaphore from one place in the code. */
+    private static final class Site {
+        final int id;
+        final String frames;
+        final StationStats.SemaphoreId semaphore;
+        final LongAdder blocked = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+
+        Site(int id, String frames, StationStats.SemaphoreId semaphore) {
+            this.id = id;
+            this.frames = frames;
+            this.semaphore = semaphore;
+        }
+    }
+
+    private final int stations;
+    private final SemaphoreProfile[] profiles;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private final AtomicInteger siteIds = new AtomicInteger();
+    private final Map<Long, String> threadNames = new ConcurrentHashMap<>();
+    // start of the current hold per [station * SEMAPHORES + id], plus one; 0 when not held
+    private final ThreadLocal<long[]> holds;
+
+    // timeline, column-wise; slots are claimed with one increment and written by
+    // their claimer only, and read after the run has terminated
+    private final int capacity;
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final byte[] types;
+    private final byte[] semaphores;
+    private final short[] stationOf;
+    private final long[] timestamps;
+    private final long[] durations;
+    private final long[] threads;
+    private final int[] values;
+
+    ContentionProfiler(int stations, int capacity) {
+        this.stations = stations;
+        this.profiles = new SemaphoreProfile[stations * SEMAPHORES.length];
+        for (int i = 0; i < profiles.length; i++) {
+            profiles[i] = new SemaphoreProfile();
+        }
+        this.holds = ThreadLocal.withInitial(() -> new long[profiles.length]);
+        this.capacity = capacity;
+        this.types = new byte[capacity];
+        this.semaphores = new byte[capacity];
+        this.stationOf = new short[capacity];
+        this.timestamps = new long[capacity];
+        this.durations = new long[capacity];
+        this.threads = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    /** Mutex and pump bays are taken and given back by the same thread, so they have holders. */
+    private static boolean hasHolders(StationStats.SemaphoreId id) {
+        return id == StationStats.SemaphoreId.MUTEX || id == StationStats.SemaphoreId.PUMPS;
+    }
+
+    private int slot(StationStats.SemaphoreCounters c) {
+        return c.station * SEMAPHORES.length + c.id.ordinal();
+    }
+
+    /** The calling thread is about to block at station time {@code now}; {@code queueLength} counts it too. */
+    void blocking(StationStats.SemaphoreCounters c, long now, int queueLength) {
+        profiles[slot(c)].blocking(queueLength);
+        event(QUEUE, c, now, 0, queueLength);
+    }
+
+    /**
+     * The calling thread got a permit, after blocking for {@code waitNanos} if it
+     * blocked, leaving {@code queueLength} threads queued behind it.
+     */
+    void acquired(StationStats.SemaphoreCounters c, long now, boolean blocked, long waitNanos, int queueLength) {
+        if (blocked) waited(c, now, waitNanos, queueLength);
+        if (hasHolders(c.id)) holds.get()[slot(c)] = now + 1;
+    }
+
+    /** The calling thread gave up a timed wait after {@code waitNanos}, leaving {@code queueLength} queued. */
+    void timedOut(StationStats.SemaphoreCounters c, long now, long waitNanos, int queueLength) {
+        waited(c, now, waitNanos, queueLength);
+    }
+
+    private void waited(StationStats.SemaphoreCounters c, long now, long waitNanos, int queueLength) {
+        profiles[slot(c)].waits.record(waitNanos);
+        Site site = site(c.id);
+        site.blocked.increment();
+        site.waitNanos.add(waitNanos);
+        event(WAIT, c, now - waitNanos, waitNanos, site.id);
+        event(QUEUE, c, now, 0, queueLength);
+    }
+
+    /** The calling thread gave a permit back at station time {@code now}. */
+    void released(StationStats.SemaphoreCounters c, long now) {
+        if (!hasHolders(c.id)) return;
+        long[] held = holds.get();
+        int slot = slot(c);
+        long start = held[slot] - 1;
+        if (start < 0) return;
+        held[slot] = 0;
+        event(HOLD, c, start, now - start, 0);
+    }
+
+    private Site site(StationStats.SemaphoreId semaphore) {
+        String frames = WALKER.walk(s -> {
+            StringBuilder sb = new StringBuilder();
+            s.filter(f -> !isSemaphoreFrame(f.getClassName())).limit(SITE_DEPTH).forEach(f -> {
+                String cls = f.getClassName();
+                String frame = cls.substring(cls.lastIndexOf('.') + 1) + "." + f.getMethodName() + ":" + f.getLineNumber();
+                sb.insert(0, sb.length() == 0 ? frame : frame + " > ");
+            });
+            return sb.toString();
+        });
+        return sites.computeIfAbsent(frames + "|" + semaphore.label(),
+                k -> new Site(siteIds.getAndIncrement(), frames, semaphore));
+    }
+
+    private static boolean isSemaphoreFrame(String className) {
+        return className.equals("Semaphore") || className.equals("MonitorSemaphore")
+                || className.equals("ContentionProfiler") || className.startsWith("ContentionProfiler$");
+    }
+
+    private void event(byte type, StationStats.SemaphoreCounters c, long timestamp, long duration, int value) {
+        int i = claimed.getAndIncrement();
+        if (i >= capacity) {
+            claimed.set(capacity);
+            dropped.increment();
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        long tid = thread.getId();
+        if (!threadNames.containsKey(tid)) threadNames.put(tid, thread.getName());
+        types[i] = type;
+        semaphores[i] = (byte) c.id.ordinal();
+        stationOf[i] = (short) c.station;
+        timestamps[i] = timestamp;
+        durations[i] = duration;
+        threads[i] = tid;
+        values[i] = value;
+    }
+
+    long eventCount() {
+        return Math.min(claimed.get(), capacity);
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    /** Per-semaphore and per-call-site tables, over all stations. */
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s %10s %12s %12s %12s %10s %10s%n", "Semaphore", "blocked",
+                "p50 (ms)", "p99 (ms)", "max (ms)", "avg queue", "max queue"));
+        for (StationStats.SemaphoreId id : SEMAPHORES) {
+            LatencyHistogram waits = new LatencyHistogram();
+            long blocks = 0;
+            long queued = 0;
+            int maxQueue = 0;
+            for (int station = 0; station < stations; station++) {
+                SemaphoreProfile p = profiles[station * SEMAPHORES.length + id.ordinal()];
+                waits.add(p.waits);
+                blocks += p.blocks.sum();
+                queued += p.queuedAhead.sum();
+                maxQueue = Math.max(maxQueue, p.maxQueue.get());
+            }
+            LatencyHistogram.Snapshot s = waits.snapshot();
+            sb.append(String.format(Locale.ROOT, "%-10s %10d %12.3f %12.3f %12.3f %10.2f %10d%n", id.label(), blocks,
+                    s.percentile(50) / 1e6, s.percentile(99) / 1e6, s.max() / 1e6,
+                    blocks > 0 ? (double) queued / blocks : 0, maxQueue));
+        }
+
+        List<Site> bySite = new ArrayList<>(sites.values());
+        bySite.sort(Comparator.comparingLong((Site site) -> site.waitNanos.sum()).reversed());
+        sb.append(String.format("%n%-10s %10s %14s  %s%n", "Semaphore", "blocked", "wait (ms)", "call site"));
+        for (Site site : bySite) {
+            sb.append(String.format(Locale.ROOT, "%-10s %10d %14.2f  %s%n", site.semaphore.label(),
+                    site.blocked.sum(), site.waitNanos.sum() / 1e6, site.frames));
+        }
+        return sb.toString();
+    }
+
+    /** Writes the timeline in the Chrome trace event format; call once the run has terminated. */
+    void writeChromeTrace(Path path) throws IOException {
+        String[] siteNames = new String[siteIds.get()];
+        for (Site site : sites.values()) siteNames[site.id] = site.frames;
+        int count = (int) eventCount();
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            boolean first = true;
+            for (int station = 0; station < stations; station++) {
+                first = separator(out, first);
+                out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + (station + 1)
+                        + ",\"args\":{\"name\":\"Station " + (station + 1) + "\"}}");
+            }
+            for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+                for (int station = 0; station < stations; station++) {
+                    first = separator(out, first);
+                    out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + (station + 1) + ",\"tid\":"
+                            + thread.getKey() + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                first = separator(out, first);
+                String semaphore = SEMAPHORES[semaphores[i]].label();
+                int pid = stationOf[i] + 1;
+                switch (types[i]) {
+                    case WAIT:
+                        out.write("{\"name\":\"wait " + semaphore + "\",\"cat\":\"blocked\",\"ph\":\"X\",\"ts\":"
+                                + micros(timestamps[i]) + ",\"dur\":" + micros(durations[i]) + ",\"pid\":" + pid
+                                + ",\"tid\":" + threads[i] + ",\"args\":{\"site\":" + quote(siteNames[values[i]]) + "}}");
+                        break;
+                    case HOLD:
+                        out.write("{\"name\":\"hold " + semaphore + "\",\"cat\":\"hold\",\"ph\":\"X\",\"ts\":"
+                                + micros(timestamps[i]) + ",\"dur\":" + micros(durations[i]) + ",\"pid\":" + pid
+                                + ",\"tid\":" + threads[i] + "}");
+                        break;
+                    default:
+                        out.write("{\"name\":\"waiters " + semaphore + "\",\"ph\":\"C\",\"ts\":"
+                                + micros(timestamps[i]) + ",\"pid\":" + pid + ",\"args\":{\"queued\":" + values[i] + "}}");
+                        break;
+                }
+            }
+            out.write("\n]}\n");
+        }
+    }
+
+    private static boolean separator(BufferedWriter out, boolean first) throws IOException {
+        if (!first) out.write(",\n");
+        return false;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                sb.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                sb.append(String.format("\\u%04x", (int) ch));
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,73 @@
+import java.util.Random;
+
+/**
+ * Sends each arriving car to one of the stations of a sharded run.
+ *
+ * Load is a station's occupancy: cars dispatched to it that have not left yet,
+ * whether they are still waiting for a slot, queued or being serviced. Only the
+ * car generator calls {@link #next}, so the dispatcher itself needs no locking.
+ */
+class Dispatcher {
+
+    enum Policy {
+        /** Stations take turns, regardless of load. */
+        ROUND_ROBIN,
+        /** The least occupied station; ties go to the next one in round-robin order. */
+        SHORTEST_QUEUE,
+        /** The less occupied of two stations picked at random. */
+        POWER_OF_TWO;
+
+        static Policy parse(String value) {
+            try {
+                return valueOf(value.toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid dispatch policy: " + value
+                        + " (expected round-robin, shortest-queue or power-of-two)");
+            }
+        }
+    }
+
+    private final Policy policy;
+    private final ServiceStation[] stations;
+    private final Random random;
+    private int cursor;
+
+    Dispatcher(Policy policy, ServiceStation[] stations, long seed) {
+        if (stations.length == 0) throw new IllegalArgumentException("At least one station is required.");
+        this.policy = policy;
+        this.stations = stations;
+        this.random = new Random(seed);
+    }
+
+    ServiceStation next() {
+        int n = stations.length;
+        if (n == 1) return stations[0];
+        switch (policy) {
+            case SHORTEST_QUEUE: {
+                int best = cursor;
+                int bestLoad = stations[best].load();
+                for (int k = 1; k < n && bestLoad > 0; k++) {
+                    int i = (cursor + k) % n;
+                    int load = stations[i].load();
+                    if (load < bestLoad) {
+                        best = i;
+                        bestLoad = load;
+                    }
+                }
+                cursor = (cursor + 1) % n;
+                return stations[best];
+            }
+            case POWER_OF_TWO: {
+                int a = random.nextInt(n);
+                int b = random.nextInt(n - 1);
+                if (b >= a) b++;
+                return stations[a].load() <= stations[b].load() ? stations[a] : stations[b];
+            }
+            default: {
+                ServiceStation s = stations[cursor];
+                cursor = (cursor + 1) % n;
+                return s;
+            }
+        }
+    }
+}
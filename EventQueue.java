@@ -0,0 +1,85 @@
+/**
+ * Pending events of the discrete-event engine: a binary min-heap over primitive
+ * arrays, ordered by time and then by scheduling order, so events at the same
+ * instant run first-come first-served. Nothing is boxed or allocated per event.
+ */
+class EventQueue {
+    private long[] times;
+    private long[] seqs;
+    private int[] events;
+    private int size;
+    private long nextSeq;
+
+    EventQueue(int initialCapacity) {
+        times = new long[Math.max(initialCapacity, 2)];
+        seqs = new long[times.length];
+        events = new int[times.length];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void push(long time, int event) {
+        if (size == times.length) grow();
+        long seq = nextSeq++;
+        int i = size++;
+        // sift up
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(time, seq, times[parent], seqs[parent])) break;
+            times[i] = times[parent];
+            seqs[i] = seqs[parent];
+            events[i] = events[parent];
+            i = parent;
+        }
+        times[i] = time;
+        seqs[i] = seq;
+        events[i] = event;
+    }
+
+    /** Time of the earliest event; the queue must not be empty. */
+    long peekTime() {
+        return times[0];
+    }
+
+    /** Removes the earliest event and returns it; the queue must not be empty. */
+    int pop() {
+        int top = events[0];
+        int last = --size;
+        long time = times[last];
+        long seq = seqs[last];
+        int event = events[last];
+        // sift the last element down from the root
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= last) break;
+            if (child + 1 < last && before(times[child + 1], seqs[child + 1], times[child], seqs[child])) child++;
+            if (!before(times[child], seqs[child], time, seq)) break;
+            times[i] = times[child];
+            seqs[i] = seqs[child];
+            events[i] = events[child];
+            i = child;
+        }
+        times[i] = time;
+        seqs[i] = seq;
+        events[i] = event;
+        return top;
+    }
+
+    private static boolean before(long time, long seq, long otherTime, long otherSeq) {
+        return time < otherTime || (time == otherTime && seq < otherSeq);
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        times = java.util.Arrays.copyOf(times, capacity);
+        seqs = java.util.Arrays.copyOf(seqs, capacity);
+        events = java.util.Arrays.copyOf(events, capacity);
+    }
+}
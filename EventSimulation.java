@@ -0,0 +1,251 @@
+import java.io.IOException;
+
+/**
+ * Single-threaded discrete-event model of one FIFO station, for what-if runs far
+ * faster than the threaded simulation.
+ *
+ * The same arrivals go through the same steps as with threads: a car takes a place
+ * in the waiting area ({@code empty}) or waits outside until a pump frees one, a
+ * free pump takes the oldest waiting car ({@code full}) and services it, and the car
+ * leaves when the service ends ({@code serviced}). Arrivals and service ends are
+ * events in an {@link EventQueue}; everything else happens as a consequence of one.
+ * Cars are rows in primitive arrays rather than objects, so a run allocates nothing
+ * per car.
+ *
+ * Results go into a {@link StationStats} with the meaning the threaded run gives
+ * them, so the usual efficiency analysis can be printed for either engine.
+ */
+class EventSimulation {
+    // event payload for an arrival; service ends carry the pump index
+    private static final int ARRIVAL = -1;
+    private static final long NANOS_PER_MILLI = 1_000_000;
+    private static final Car.Priority[] PRIORITIES = Car.Priority.values();
+
+    private final int capacity;
+    private final int numPumps;
+    private final long numCars;
+    private final Workload workload;
+    final StationStats stats;
+    private final EventQueue events;
+
+    // cars that have arrived but not reached a pump, oldest first: the first
+    // {@code capacity} are in the waiting area, the rest are queued outside
+    private long[] arrivals = new long[64];
+    private long[] queued = new long[64];
+    private long[] services = new long[64];
+    private byte[] priorities = new byte[64];
+    private long head;
+    private long tail;
+
+    // the car each pump is servicing
+    private final long[] pumpArrival;
+    private final long[] pumpQueued;
+    private final long[] pumpStart;
+    private final byte[] pumpPriority;
+    private final long[] pumpBusy;
+    private final long[] pumpCars;
+    // idle pumps as a stack, and since when each has been waiting for a car
+    private final int[] idle;
+    private int idleCount;
+    private final long[] idleSince;
+
+    private long now;
+    private long arrived;
+    private long departed;
+    private long eventCount;
+    private long emptyBlocked;
+    private long emptyWait;
+    private long fullAcquires;
+    private long fullBlocked;
+    private long fullWait;
+    private long servicedWait;
+    private long carWork;
+    // null unless counted: [n] arrivals that found n cars waiting for a pump, the last slot n or more
+    private long[] waitingOnArrival;
+
+    EventSimulation(StationConfig config, Workload workload) {
+        this.capacity = config.waitingCapacity;
+        this.numPumps = config.numPumps;
+        this.numCars = config.numCars;
+        this.workload = workload;
+        this.stats = new StationStats(0, numPumps);
+        this.events = new EventQueue(numPumps + 1);
+        pumpArrival = new long[numPumps];
+        pumpQueued = new long[numPumps];
+        pumpStart = new long[numPumps];
+        pumpPriority = new byte[numPumps];
+        pumpBusy = new long[numPumps];
+        pumpCars = new long[numPumps];
+        idle = new int[numPumps];
+        idleSince = new long[numPumps];
+        // pump 1 is the first to take a car, as the first pump thread to wait would be
+        for (int p = numPumps - 1; p >= 0; p--) {
+            idle[idleCount++] = p;
+        }
+    }
+
+    /** Runs every car through the station; returns the station time of the last departure. */
+    long run() throws IOException {
+        scheduleArrival();
+        while (!events.isEmpty()) {
+            now = events.peekTime();
+            int event = events.pop();
+            eventCount++;
+            if (event == ARRIVAL) {
+                arrive();
+                scheduleArrival();
+            } else {
+                finishService(event);
+            }
+        }
+        // the drain wakes the pumps still waiting for a car when the last one leaves
+        for (int i = 0; i < idleCount; i++) {
+            fullAcquires++;
+            fullBlocked++;
+            fullWait += now - idleSince[idle[i]];
+        }
+        flushCounters();
+        return now;
+    }
+
+    /**
+     * Counts, for every arrival, how many cars were already waiting for a pump, up to
+     * {@code max}. Under FIFO that does not depend on the waiting capacity, so one run
+     * tells for every capacity up to {@code max} how often a car found the area full.
+     */
+    void countWaitingOnArrival(int max) {
+        waitingOnArrival = new long[max + 1];
+    }
+
+    /** The counts asked for by {@link #countWaitingOnArrival}, or null. */
+    long[] waitingOnArrival() {
+        return waitingOnArrival;
+    }
+
+    long eventCount() {
+        return eventCount;
+    }
+
+    long carsServiced() {
+        return departed;
+    }
+
+    private void scheduleArrival() throws IOException {
+        // one arrival is pending at a time, so the queue never holds more than pumps + 1 events
+        if (arrived < numCars && workload.next()) {
+            arrived++;
+            events.push(now + workload.gapMillis() * NANOS_PER_MILLI, ARRIVAL);
+        }
+    }
+
+    private void arrive() {
+        if (tail - head == arrivals.length) grow();
+        int slot = slot(tail);
+        arrivals[slot] = now;
+        services[slot] = workload.serviceMillis() * NANOS_PER_MILLI;
+        priorities[slot] = (byte) workload.priority().ordinal();
+        // a place in the waiting area, or the wait on empty starts here
+        if (tail - head < capacity) queued[slot] = now;
+        if (waitingOnArrival != null) waitingOnArrival[(int) Math.min(tail - head, waitingOnArrival.length - 1)]++;
+        tail++;
+        if (idleCount > 0) startService(idle[--idleCount]);
+    }
+
+    /** The pump takes the oldest waiting car, which frees its place for the first car outside. */
+    private void startService(int pump) {
+        int slot = slot(head);
+        fullAcquires++;
+        if (idleSince[pump] >= 0) {
+            fullBlocked++;
+            fullWait += now - idleSince[pump];
+            idleSince[pump] = -1;
+        }
+        pumpArrival[pump] = arrivals[slot];
+        pumpQueued[pump] = queued[slot];
+        pumpStart[pump] = now;
+        pumpPriority[pump] = priorities[slot];
+        events.push(now + services[slot], pump);
+        head++;
+        if (tail - head >= capacity) {
+            int admitted = slot(head + capacity - 1);
+            queued[admitted] = now;
+            emptyBlocked++;
+            emptyWait += now - arrivals[admitted];
+        }
+    }
+
+    private void finishService(int pump) {
+        long arrival = pumpArrival[pump];
+        long queuedAt = pumpQueued[pump];
+        long start = pumpStart[pump];
+        LatencyMetrics latency = stats.latency;
+        latency.record(LatencyMetrics.Phase.ARRIVAL_TO_QUEUE, queuedAt - arrival);
+        latency.record(LatencyMetrics.Phase.QUEUE_TO_PUMP, start - queuedAt);
+        latency.record(LatencyMetrics.Phase.WAIT, start - arrival);
+        stats.waitByPriority(PRIORITIES[pumpPriority[pump]]).record(start - arrival);
+        latency.record(LatencyMetrics.Phase.SERVICE, now - start);
+        latency.record(LatencyMetrics.Phase.END_TO_END, now - arrival);
+        pumpBusy[pump] += now - start;
+        pumpCars[pump]++;
+        servicedWait += now - queuedAt;
+        carWork += now - arrival;
+        departed++;
+
+        if (tail > head) {
+            idleSince[pump] = -1;
+            startService(pump);
+        } else {
+            idleSince[pump] = now;
+            idle[idleCount++] = pump;
+        }
+    }
+
+    /** Moves the run's totals into the station statistics, once, at the end. */
+    private void flushCounters() {
+        StationStats.SemaphoreCounters empty = stats.semaphore(StationStats.SemaphoreId.EMPTY);
+        empty.acquires.add(arrived);
+        empty.blocked.add(emptyBlocked);
+        empty.waitNanos.add(emptyWait);
+        StationStats.SemaphoreCounters full = stats.semaphore(StationStats.SemaphoreId.FULL);
+        full.acquires.add(fullAcquires);
+        full.blocked.add(fullBlocked);
+        full.waitNanos.add(fullWait);
+        // a pump is always free for the car it has just taken
+        stats.semaphore(StationStats.SemaphoreId.PUMPS).acquires.add(departed);
+        StationStats.SemaphoreCounters serviced = stats.semaphore(StationStats.SemaphoreId.SERVICED);
+        serviced.acquires.add(departed);
+        serviced.blocked.add(departed);
+        serviced.waitNanos.add(servicedWait);
+        for (int p = 0; p < numPumps; p++) {
+            stats.pump(p + 1).busyNanos.add(pumpBusy[p]);
+            stats.pump(p + 1).carsServiced.add(pumpCars[p]);
+        }
+        stats.carWorkNanos.add(carWork);
+        stats.carsServiced.add(departed);
+    }
+
+    private int slot(long index) {
+        return (int) (index & (arrivals.length - 1));
+    }
+
+    /** Doubles the pending-car ring, keeping the cars in order from index {@code head}. */
+    private void grow() {
+        int length = arrivals.length;
+        long[] newArrivals = new long[length * 2];
+        long[] newQueued = new long[length * 2];
+        long[] newServices = new long[length * 2];
+        byte[] newPriorities = new byte[length * 2];
+        for (long i = head; i < tail; i++) {
+            int from = (int) (i & (length - 1));
+            int to = (int) (i & (length * 2 - 1));
+            newArrivals[to] = arrivals[from];
+            newQueued[to] = queued[from];
+            newServices[to] = services[from];
+            newPriorities[to] = priorities[from];
+        }
+        arrivals = newArrivals;
+        queued = newQueued;
+        services = newServices;
+        priorities = newPriorities;
+    }
+}
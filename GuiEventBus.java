@@ -0,0 +1,89 @@
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import javax.swing.Timer;
+
+/**
+ * Sits between {@link CarWashModel} and {@link CarWashGUI} and coalesces model
+ * events so the EDT sees at most one update task per frame.
+ *
+ * Pump events only set a per-pump dirty flag and queue events a single flag; the
+ * latest state is read from the model when the frame is flushed, however many
+ * events arrived in between. Log lines are timestamped on arrival and handed over
+ * in one batch per frame.
+ */
+class GuiEventBus implements PropertyChangeListener {
+
+    static final int DEFAULT_FPS = 30;
+
+    private final CarWashModel model;
+    private final CarWashGUI gui;
+    private final AtomicIntegerArray dirtyPumps;
+    private final AtomicBoolean anyPumpDirty = new AtomicBoolean();
+    private final AtomicBoolean queueDirty = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<ActivityLog.Entry> pendingLogs = new ConcurrentLinkedQueue<>();
+    private final Timer frameTimer;
+
+    GuiEventBus(CarWashModel model, CarWashGUI gui, int framesPerSecond) {
+        if (framesPerSecond <= 0) throw new IllegalArgumentException("Frame rate must be positive.");
+        this.model = model;
+        this.gui = gui;
+        this.dirtyPumps = new AtomicIntegerArray(model.getNumPumps());
+        // a Swing timer fires on the EDT, so each flush is already a single EDT task
+        this.frameTimer = new Timer(1000 / framesPerSecond, e -> flush());
+        this.frameTimer.setCoalesce(true);
+    }
+
+    void start() {
+        model.addPropertyChangeListener(this);
+        frameTimer.start();
+    }
+
+    void stop() {
+        model.removePropertyChangeListener(this);
+        frameTimer.stop();
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        String name = evt.getPropertyName();
+        if ("queue".equals(name)) {
+            queueDirty.set(true);
+        } else if (name != null && name.startsWith("pump")) {
+            int pumpId = Integer.parseInt(name, 4, name.length(), 10);
+            dirtyPumps.set(pumpId, 1);
+            anyPumpDirty.set(true);
+        } else if ("log".equals(name)) {
+            pendingLogs.add(ActivityLog.Entry.parse((String) evt.getNewValue(), System.currentTimeMillis()));
+        } else if ("logBatch".equals(name)) {
+            @SuppressWarnings("unchecked")
+            List<String> msgs = (List<String>) evt.getNewValue();
+            long now = System.currentTimeMillis();
+            for (String msg : msgs) pendingLogs.add(ActivityLog.Entry.parse(msg, now));
+        }
+    }
+
+    // runs on the EDT
+    private void flush() {
+        if (anyPumpDirty.getAndSet(false)) {
+            for (int i = 0; i < dirtyPumps.length(); i++) {
+                if (dirtyPumps.getAndSet(i, 0) == 1) {
+                    gui.showPump(i, model.getPumpState(i));
+                }
+            }
+        }
+        if (queueDirty.getAndSet(false)) {
+            gui.showQueue(model.getQueueSnapshot());
+        }
+        if (!pendingLogs.isEmpty()) {
+            List<ActivityLog.Entry> entries = new ArrayList<>();
+            ActivityLog.Entry entry;
+            while ((entry = pendingLogs.poll()) != null) entries.add(entry);
+            gui.showLogs(entries);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only binary journal of everything that happens to cars, pumps and
+ * semaphores, for offline analysis and playback with {@link JournalReader}.
+ *
+ * The journal is a directory of segment files of a fixed size. Each segment starts
+ * with a header record and is memory-mapped as a whole; a writer claims the next
+ * 32-byte record with one atomic add and fills it in with absolute puts, so
+ * recording allocates nothing and writers never wait for each other. The thread
+ * whose claim runs past the end of a segment maps the next one.
+ *
+ * Record layout, little-endian: timestamp (long, station clock nanoseconds), event
+ * type (byte), semaphore (byte), station (short), pump (int), subject (long: car id,
+ * or thread id for semaphore events) and value (long, see {@link Event}). A record
+ * that was claimed but never filled in, for example after a crash, reads as
+ * {@link Event#NONE}. Records are in claim order, which can differ slightly from
+ * timestamp order across threads, and more across stations, whose clocks run
+ * independently, but never for the events of one car.
+ */
+final class Journal {
+
+    enum Event {
+        /** Unwritten record. */
+        NONE,
+        /** Car arrived; value is its service time in ms. */
+        ARRIVAL,
+        /** Car entered the waiting area. */
+        ENQUEUE,
+        /** A pump took the car out of the waiting area. */
+        DEQUEUE,
+        /**
+         * Service started; value is how long the pump is busy, in ms: the car's time at
+         * that pump (scaled by bay speed, or --batch-car-ms), or with batching the whole
+         * run including setup.
+         */
+        SERVICE_START,
+        SERVICE_END,
+        DEPARTURE,
+        /** A thread blocked on a semaphore. */
+        SEMAPHORE_BLOCK,
+        /** The thread got its permit; value is the time it was blocked, in ns. */
+        SEMAPHORE_UNBLOCK,
+        /** Car left without service (balked, rejected or reneged); value is how long it waited, in ns. */
+        ABANDON,
+        /** A timed wait gave up without a permit; value is the time it was blocked, in ns. */
+        SEMAPHORE_TIMEOUT;
+
+        private static final Event[] VALUES = values();
+
+        static Event of(int code) {
+            return code >= 0 && code < VALUES.length ? VALUES[code] : NONE;
+        }
+    }
+
+    static final int MAGIC = 0x4e4a5743; // "CWJN" read as a little-endian int
+    static final int VERSION = 1;
+    static final int RECORD_BYTES = 32;
+
+    private static final class Segment {
+        final int index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        // offset of the next unclaimed record
+        final AtomicInteger cursor = new AtomicInteger(RECORD_BYTES);
+
+        Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int numPumps;
+    private final int waitingCapacity;
+    private final int stations;
+    // writers between claiming a record and filling it in; close waits for them
+    private final LongAdder inFlight = new LongAdder();
+    // records in segments that have been rolled over
+    private long rolledRecords;
+    private volatile Segment current;
+    // set after a write error or close; later events are dropped
+    private volatile boolean stopped;
+
+    private Journal(Path directory, int segmentBytes, StationConfig config) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.numPumps = config.numPumps;
+        this.waitingCapacity = config.waitingCapacity;
+        this.stations = config.stations;
+        this.current = openSegment(0);
+    }
+
+    /** Starts a journal in {@code directory}, replacing the segments of an earlier run. */
+    static Journal open(Path directory, int segmentMegabytes, StationConfig config) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(directory, "journal-*.seg")) {
+            for (Path p : old) Files.delete(p);
+        }
+        long bytes = (long) segmentMegabytes << 20;
+        // leaves the int cursor room for claims that overshoot the end
+        if (bytes > 1L << 30) throw new IllegalArgumentException("Journal segments must be 1 GB or smaller.");
+        return new Journal(directory, (int) bytes, config);
+    }
+
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("journal-%06d.seg", index));
+    }
+
+    /** Appends one record stamped with {@code timestamp}, the recording station's clock. */
+    void record(Event type, long timestamp, int station, int pump, int semaphore, long subject, long value) {
+        inFlight.increment();
+        try {
+            while (!stopped) {
+                Segment s = current;
+                int at = s.cursor.getAndAdd(RECORD_BYTES);
+                if (at + RECORD_BYTES <= s.capacity) {
+                    MappedByteBuffer b = s.buffer;
+                    b.putLong(at, timestamp);
+                    b.put(at + 9, (byte) semaphore);
+                    b.putShort(at + 10, (short) station);
+                    b.putInt(at + 12, pump);
+                    b.putLong(at + 16, subject);
+                    b.putLong(at + 24, value);
+                    // the type goes in last, so a record cut short by a crash usually reads as NONE
+                    b.put(at + 8, (byte) type.ordinal());
+                    return;
+                }
+                roll(s);
+            }
+        } finally {
+            inFlight.decrement();
+        }
+    }
+
+    private synchronized void roll(Segment full) {
+        if (current != full || stopped) return;
+        try {
+            // writers still filling in records of this segment keep its mapping alive
+            full.buffer.force();
+            full.channel.close();
+            rolledRecords += full.capacity / RECORD_BYTES - 1;
+            current = openSegment(full.index + 1);
+        } catch (IOException e) {
+            stopped = true;
+            System.err.println("Journal stopped, writing segment " + (full.index + 1) + " failed: " + e.getMessage());
+        }
+    }
+
+    private Segment openSegment(int index) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(directory, index), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        // header record: magic, version, segment index, station layout
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, (short) VERSION);
+        buffer.putShort(6, (short) RECORD_BYTES);
+        buffer.putInt(8, index);
+        buffer.putInt(12, numPumps);
+        buffer.putInt(16, waitingCapacity);
+        buffer.putInt(20, stations);
+        return new Segment(index, channel, buffer);
+    }
+
+    /** Records written so far; exact once the journal is closed. */
+    synchronized long recordedCount() {
+        Segment s = current;
+        return rolledRecords + Math.min(s.cursor.get(), s.capacity) / RECORD_BYTES - 1;
+    }
+
+    int segmentCount() {
+        return current.index + 1;
+    }
+
+    /** Flushes the last segment and cuts it back to the records actually claimed. */
+    synchronized void close() {
+        if (stopped) return;
+        stopped = true;
+        // a record being filled in past the new end of the file would fault
+        while (inFlight.sum() != 0) {
+            Thread.onSpinWait();
+        }
+        Segment s = current;
+        try {
+            s.buffer.force();
+            s.channel.truncate(Math.min(s.cursor.get(), s.capacity));
+            s.channel.close();
+        } catch (IOException e) {
+            System.err.println("Closing journal segment " + s.index + " failed: " + e.getMessage());
+        }
+    }
+}
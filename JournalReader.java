@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+/**
+ * Offline reader for a {@link Journal}: rebuilds the run's statistics from the
+ * recorded events, or plays the first station back in the GUI.
+ *
+ * Usage: java JournalReader DIR [--play[=SPEED]]
+ */
+public class JournalReader {
+
+    interface Visitor {
+        void event(Journal.Event type, long timestamp, int station, int pump, int semaphore, long subject, long value);
+    }
+
+    /** Station layout stored in every segment header. */
+    static final class Layout {
+        final int numPumps;
+        final int waitingCapacity;
+        final int stations;
+
+        Layout(int numPumps, int waitingCapacity, int stations) {
+            this.numPumps = numPumps;
+            this.waitingCapacity = waitingCapacity;
+            this.stations = stations;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].startsWith("--play"))) {
+            System.out.println("Usage: java JournalReader DIR [--play[=SPEED]]");
+            return;
+        }
+        Path dir = Path.of(args[0]);
+        try {
+            if (args.length == 2) {
+                double speed = args[1].startsWith("--play=") ? Double.parseDouble(args[1].substring(7)) : 1.0;
+                if (!(speed > 0)) throw new IllegalArgumentException("Playback speed must be positive.");
+                play(dir, speed);
+            } else {
+                printStatistics(dir);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Cannot read journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Layout layout(Path dir) throws IOException {
+        Path first = Journal.segmentPath(dir, 0);
+        if (!Files.exists(first)) throw new IOException("no journal segments in " + dir);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ)) {
+            MappedByteBuffer header = map(channel, first);
+            return new Layout(header.getInt(12), header.getInt(16), header.getInt(20));
+        }
+    }
+
+    /** Feeds every written event of every segment, in file order, to the visitor. */
+    static long read(Path dir, Visitor visitor) throws IOException {
+        long events = 0;
+        for (int index = 0; ; index++) {
+            Path path = Journal.segmentPath(dir, index);
+            if (!Files.exists(path)) break;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer b = map(channel, path);
+                int end = b.limit() - b.limit() % Journal.RECORD_BYTES;
+                for (int at = Journal.RECORD_BYTES; at < end; at += Journal.RECORD_BYTES) {
+                    Journal.Event type = Journal.Event.of(b.get(at + 8));
+                    if (type == Journal.Event.NONE) continue;
+                    visitor.event(type, b.getLong(at), b.getShort(at + 10), b.getInt(at + 12), b.get(at + 9),
+                            b.getLong(at + 16), b.getLong(at + 24));
+                    events++;
+                }
+            }
+        }
+        return events;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, Path path) throws IOException {
+        if (channel.size() < Journal.RECORD_BYTES) throw new IOException(path + " is not a journal segment.");
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        if (b.getInt(0) != Journal.MAGIC) throw new IOException(path + " is not a journal segment.");
+        if (b.getShort(4) != Journal.VERSION || b.getShort(6) != Journal.RECORD_BYTES) {
+            throw new IOException(path + ": unsupported journal version " + b.getShort(4) + ".");
+        }
+        return b;
+    }
+
+    // --- statistics ---
+
+    private static void printStatistics(Path dir) throws IOException {
+        Layout layout = layout(dir);
+        StatisticsBuilder builder = new StatisticsBuilder(layout);
+        long events = read(dir, builder);
+        double spanSeconds = events == 0 ? 0 : (builder.lastTimestamp - builder.firstTimestamp) / 1_000_000_000.0;
+
+        System.out.println("Journal " + dir + ": " + events + " events, " + layout.stations + " station(s), "
+                + layout.numPumps + " pumps, waiting capacity " + layout.waitingCapacity);
+        System.out.println(String.format("Cars departed: %d over %.1f s of station time", builder.departed, spanSeconds));
+        System.out.println("\nEvents:");
+        for (Journal.Event type : Journal.Event.values()) {
+            if (type != Journal.Event.NONE) {
+                System.out.println(String.format("  %-18s %12d", type.name().toLowerCase(), builder.counts[type.ordinal()]));
+            }
+        }
+        System.out.println("\nContention (blocked acquires only):");
+        System.out.print(builder.stats.report());
+        System.out.println("\nCar Latency:");
+        System.out.print(builder.stats.latency.report());
+    }
+
+    /** Replays the per-car phases and the semaphore waits into a StationStats. */
+    private static final class StatisticsBuilder implements Visitor {
+        // arrival, queued, service start, service end of every car still in the station
+        final Map<Long, long[]> cars = new HashMap<>();
+        final long[] counts = new long[Journal.Event.values().length];
+        final StationStats stats;
+        // per station and pump, until when its busy time has been counted: the cars of
+        // a batch share one service run, which must only count once
+        final long[] busyUntil;
+        final int numPumps;
+        long firstTimestamp = Long.MAX_VALUE;
+        long lastTimestamp = Long.MIN_VALUE;
+        long departed;
+
+        StatisticsBuilder(Layout layout) {
+            this.stats = new StationStats(layout.numPumps);
+            this.numPumps = layout.numPumps;
+            this.busyUntil = new long[layout.stations * layout.numPumps];
+        }
+
+        @Override
+        public void event(Journal.Event type, long timestamp, int station, int pump, int semaphore, long subject,
+                          long value) {
+            counts[type.ordinal()]++;
+            firstTimestamp = Math.min(firstTimestamp, timestamp);
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+            switch (type) {
+                case ARRIVAL:
+                    cars.put(subject, new long[] {timestamp, timestamp, timestamp, timestamp});
+                    break;
+                case ENQUEUE:
+                    phase(subject, 1, timestamp);
+                    break;
+                case SERVICE_START:
+                    phase(subject, 2, timestamp);
+                    break;
+                case SERVICE_END: {
+                    long[] t = cars.get(subject);
+                    if (t != null) {
+                        t[3] = timestamp;
+                        StationStats.PumpCounters counters = stats.pump(pump);
+                        counters.carsServiced.increment();
+                        int slot = station * numPumps + pump - 1;
+                        long from = Math.max(t[2], busyUntil[slot]);
+                        if (timestamp > from) counters.busyNanos.add(timestamp - from);
+                        busyUntil[slot] = Math.max(busyUntil[slot], timestamp);
+                    }
+                    break;
+                }
+                case DEPARTURE: {
+                    long[] t = cars.remove(subject);
+                    if (t == null) break;
+                    departed++;
+                    LatencyMetrics latency = stats.latency;
+                    latency.record(LatencyMetrics.Phase.ARRIVAL_TO_QUEUE, t[1] - t[0]);
+                    latency.record(LatencyMetrics.Phase.QUEUE_TO_PUMP, t[2] - t[1]);
+                    latency.record(LatencyMetrics.Phase.WAIT, t[2] - t[0]);
+                    latency.record(LatencyMetrics.Phase.SERVICE, t[3] - t[2]);
+                    latency.record(LatencyMetrics.Phase.END_TO_END, timestamp - t[0]);
+                    break;
+                }
+                case ABANDON:
+                    cars.remove(subject);
+                    break;
+                case SEMAPHORE_UNBLOCK:
+                    stats.semaphore(StationStats.SemaphoreId.values()[semaphore]).record(true, value);
+                    break;
+                case SEMAPHORE_TIMEOUT:
+                    stats.semaphore(StationStats.SemaphoreId.values()[semaphore]).recordTimeout(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void phase(long car, int index, long timestamp) {
+            long[] t = cars.get(car);
+            if (t != null) t[index] = timestamp;
+        }
+    }
+
+    // --- playback ---
+
+    private static void play(Path dir, double speed) throws IOException, InterruptedException {
+        Layout layout = layout(dir);
+        CarWashModel model = new CarWashModel(layout.numPumps);
+        try {
+            SwingUtilities.invokeAndWait(() -> new CarWashGUI(model, null, layout.waitingCapacity));
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot open the GUI: " + e.getCause(), e.getCause());
+        }
+        if (layout.stations > 1) model.fireLog("Playing back station 1 of " + layout.stations + ".");
+        Playback playback = new Playback(model, speed);
+        read(dir, playback);
+        if (playback.interrupted) throw new InterruptedException();
+        model.fireLog("Playback finished.");
+    }
+
+    /**
+     * Drives a CarWashModel from station 1's events, sleeping between them so the
+     * run unfolds at {@code speed} times its recorded pace.
+     */
+    private static final class Playback implements Visitor {
+        private static final long PROGRESS_STEP_NANOS = 100_000_000L;
+
+        final CarWashModel model;
+        final double speed;
+        final long[] serviceStart;
+        final long[] serviceNanos;
+        long firstTimestamp = Long.MIN_VALUE;
+        long wallStart;
+        boolean interrupted;
+
+        Playback(CarWashModel model, double speed) {
+            this.model = model;
+            this.speed = speed;
+            this.serviceStart = new long[model.getNumPumps()];
+            this.serviceNanos = new long[model.getNumPumps()];
+        }
+
+        @Override
+        public void event(Journal.Event type, long timestamp, int station, int pump, int semaphore, long subject,
+                          long value) {
+            if (station != 0 || interrupted) return;
+            if (firstTimestamp == Long.MIN_VALUE) {
+                firstTimestamp = timestamp;
+                wallStart = System.nanoTime();
+            }
+            waitUntil(timestamp);
+            String car = "Car-" + subject;
+            switch (type) {
+                case ARRIVAL:
+                    model.fireLog(car + " arrived.");
+                    break;
+                case ENQUEUE:
+                    model.addToQueue(car);
+                    break;
+                case DEQUEUE:
+                    model.removeFromQueue(car);
+                    break;
+                case SERVICE_START:
+                    serviceStart[pump - 1] = timestamp;
+                    serviceNanos[pump - 1] = value * 1_000_000L;
+                    model.claimPump(pump - 1, car);
+                    model.fireLog("Pump " + pump + ": " + car + " begins service.");
+                    break;
+                case SERVICE_END:
+                    serviceNanos[pump - 1] = 0;
+                    model.releasePump(pump - 1);
+                    model.fireLog("Pump " + pump + ": " + car + " finishes service.");
+                    break;
+                case DEPARTURE:
+                    model.fireLog(car + " left.");
+                    break;
+                case ABANDON:
+                    model.removeFromQueue(car);
+                    model.fireLog(car + " left without service.");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /** Sleeps until the recorded time comes up, moving the progress bars meanwhile. */
+        private void waitUntil(long timestamp) {
+            while (true) {
+                long wallDue = wallStart + (long) ((timestamp - firstTimestamp) / speed);
+                long remaining = wallDue - System.nanoTime();
+                if (remaining <= 0) return;
+                try {
+                    Thread.sleep(Math.min(remaining, PROGRESS_STEP_NANOS) / 1_000_000L + 1);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    return;
+                }
+                long now = firstTimestamp + (long) ((System.nanoTime() - wallStart) * speed);
+                for (int i = 0; i < serviceNanos.length; i++) {
+                    if (serviceNanos[i] > 0) {
+                        long elapsed = now - serviceStart[i];
+                        int percent = (int) Math.min(100, 100 * elapsed / serviceNanos[i]);
+                        model.setPumpProgress(i, percent, Math.max(0, (serviceNanos[i] - elapsed) / 1_000_000L));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent log-linear latency histogram in the style of HdrHistogram.
+ *
+ * Values below 256 ns get an exact bucket each; above that every power of two is
+ * split into 128 linear sub-buckets, so any recorded value is reported within
+ * 1/128 (under 0.8%) of its true value across the whole long range. Recording is
+ * one atomic increment plus a max update, with no allocation, so cars can call it
+ * on the hot path.
+ */
+class LatencyHistogram {
+    private static final int SUB_BITS = 8;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF = SUB_COUNT >> 1;
+    // the largest shift (for Long.MAX_VALUE) is 63 - SUB_BITS
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * HALF + SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.getAndIncrement(indexOf(nanos));
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) {
+            m = max.get();
+        }
+    }
+
+    /** Point-in-time copy for computing percentiles while recording continues. */
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, max.get());
+    }
+
+    /** Adds every value recorded in {@code other} to this histogram. */
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.getAndAdd(i, c);
+        }
+        long otherMax = other.max.get();
+        long m = max.get();
+        while (otherMax > m && !max.compareAndSet(m, otherMax)) {
+            m = max.get();
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /** Largest value that falls into the given bucket. */
+    static long highestValueAt(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = index / HALF - 1;
+        long sub = index - (long) shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long total, long max) {
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+        }
+
+        long count() {
+            return total;
+        }
+
+        long max() {
+            return max;
+        }
+
+        double mean() {
+            if (total == 0) return 0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) sum += (double) counts[i] * Math.min(highestValueAt(i), max);
+            }
+            return sum / total;
+        }
+
+        /** Value at the given percentile (0-100), in nanoseconds. */
+        long percentile(double p) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(p / 100.0 * total);
+            if (rank < 1) rank = 1;
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValueAt(i), max);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Per-phase latency of every car that passes through the station, recorded with
+ * nanosecond resolution into {@link LatencyHistogram}s. Can be queried while the
+ * station runs and is printed with the efficiency analysis at the end.
+ */
+class LatencyMetrics {
+
+    enum Phase {
+        /** Arrival until the car got a place in the waiting area (blocked on empty). */
+        ARRIVAL_TO_QUEUE("arrival -> queue"),
+        /** Entering the waiting area until a pump starts the service. */
+        QUEUE_TO_PUMP("queue -> pump"),
+        /** Arrival until a pump starts the service: the whole time spent waiting. */
+        WAIT("wait"),
+        /** Service start until the pump finishes. */
+        SERVICE("service"),
+        /** Arrival until departure. */
+        END_TO_END("end-to-end");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+    LatencyMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    void record(Phase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    void add(LatencyMetrics other) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i].add(other.histograms[i]);
+        }
+    }
+
+    LatencyHistogram.Snapshot snapshot(Phase phase) {
+        return histograms[phase.ordinal()].snapshot();
+    }
+
+    /** Percentile table, one row per phase, values in milliseconds. */
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-18s %9s %10s %10s %10s %10s %10s %10s%n",
+                "Phase (ms)", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram.Snapshot s = snapshot(phase);
+            sb.append(String.format("%-18s %9d %10.2f", phase.label, s.count(), s.mean() / 1_000_000.0));
+            for (double p : PERCENTILES) {
+                sb.append(String.format(" %10.2f", s.percentile(p) / 1_000_000.0));
+            }
+            sb.append(String.format(" %10.2f%n", s.max() / 1_000_000.0));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/** The original waiting area: a FIFO guarded by the station mutex, preallocated to the capacity. */
+class LockedWaitingArea implements WaitingArea {
+    private final Queue<Car> queue;
+    private final int capacity;
+    private final Semaphore mutex;
+
+    LockedWaitingArea(int capacity, Semaphore mutex) {
+        this.capacity = capacity;
+        this.mutex = mutex;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public void put(Car car) {
+        mutex.waitSemaphore();
+        try {
+            queue.offer(car);
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public Car take(int pumpId) {
+        mutex.waitSemaphore();
+        try {
+            return queue.poll();
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public void takeBatch(int pumpId, Car[] into, int count) {
+        mutex.waitSemaphore();
+        try {
+            for (int i = 0; i < count; i++) {
+                into[i] = queue.poll();
+            }
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public int size() {
+        mutex.waitSemaphore();
+        try {
+            return queue.size();
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Everything passed to {@link ServiceStation#log} ends up here.
+ *
+ * In synchronous mode each message is written to the sinks by the calling thread
+ * under a lock, as the station always did. In asynchronous mode cars and pumps only
+ * append to a lock-free {@link BoundedRing}; a single writer thread drains it and
+ * hands the sinks whole batches, so console and GUI work no longer serializes the
+ * simulation. When the ring is full the {@link Policy} decides whether the producer
+ * waits for room or the message is dropped and counted.
+ */
+class LogPipeline {
+
+    enum Policy {
+        /** Producers wait for room: nothing is lost, but a slow sink slows the station. */
+        BLOCK,
+        /** Producers never wait: messages that do not fit are dropped and counted. */
+        DROP;
+
+        static Policy parse(String value) {
+            try {
+                return valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid log policy: " + value + " (expected block or drop)");
+            }
+        }
+    }
+
+    /** Destination for log lines. Only ever called by one thread at a time. */
+    interface Sink {
+        void write(List<String> batch);
+
+        default void close() {}
+    }
+
+    private static final int MAX_BATCH = 512;
+
+    private final List<Sink> sinks;
+    private final BoundedRing<String> ring;
+    private final Policy policy;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+    // only advanced by the writer thread
+    private volatile long written;
+
+    private LogPipeline(List<Sink> sinks, int capacity, Policy policy) {
+        this.sinks = sinks;
+        this.policy = policy;
+        if (capacity > 0 && !sinks.isEmpty()) {
+            this.ring = new BoundedRing<>(capacity);
+            this.writer = new Thread(this::drain, "log-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.ring = null;
+            this.writer = null;
+        }
+    }
+
+    static LogPipeline synchronous(List<Sink> sinks) {
+        return new LogPipeline(sinks, 0, Policy.BLOCK);
+    }
+
+    static LogPipeline asynchronous(List<Sink> sinks, int capacity, Policy policy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Log buffer capacity must be positive.");
+        return new LogPipeline(sinks, capacity, policy);
+    }
+
+    void publish(String message) {
+        if (sinks.isEmpty()) return;
+        if (ring == null) {
+            syncLock.lock();
+            try {
+                List<String> one = List.of(message);
+                for (Sink sink : sinks) sink.write(one);
+            } finally {
+                syncLock.unlock();
+            }
+            return;
+        }
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        for (int spins = 0; !ring.offer(message); spins++) {
+            if (policy == Policy.DROP || closed) {
+                dropped.increment();
+                return;
+            }
+            wakeWriter();
+            if (spins < 64) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(50_000L);
+            }
+        }
+        if (writerParked) wakeWriter();
+    }
+
+    /** False when messages have nowhere to go, e.g. with --quiet and no log file. */
+    boolean hasSinks() {
+        return !sinks.isEmpty();
+    }
+
+    /** Waits until everything published so far has reached the sinks. */
+    void flush() {
+        if (ring == null) return;
+        long target = ring.produced();
+        while (written < target && writer.isAlive()) {
+            wakeWriter();
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /** Flushes, stops the writer thread and closes the sinks. */
+    void close() {
+        flush();
+        closed = true;
+        if (writer != null) {
+            wakeWriter();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Sink sink : sinks) sink.close();
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void wakeWriter() {
+        LockSupport.unpark(writer);
+    }
+
+    private void drain() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        int idle = 0;
+        while (true) {
+            String message;
+            while (batch.size() < MAX_BATCH && (message = ring.poll()) != null) {
+                batch.add(message);
+            }
+            if (!batch.isEmpty()) {
+                for (Sink sink : sinks) {
+                    try {
+                        sink.write(batch);
+                    } catch (RuntimeException e) {
+                        System.err.println("Log sink failed: " + e);
+                    }
+                }
+                written += batch.size();
+                batch.clear();
+                idle = 0;
+                continue;
+            }
+            if (closed) return;
+            // stay awake briefly so a busy station does not pay for an unpark per message
+            if (idle++ < 100) {
+                Thread.yield();
+                continue;
+            }
+            idle = 0;
+            // publish the parked flag before the final emptiness check so a producer
+            // that adds a message right after it is guaranteed to unpark us
+            writerParked = true;
+            if (ring.size() == 0 && !closed) {
+                LockSupport.parkNanos(this, 50_000_000L);
+            }
+            writerParked = false;
+        }
+    }
+
+    // --- sinks ---
+
+    static Sink consoleSink() {
+        StringBuilder text = new StringBuilder();
+        return batch -> {
+            if (batch.size() == 1) {
+                System.out.println(batch.get(0));
+                return;
+            }
+            text.setLength(0);
+            for (String line : batch) text.append(line).append(System.lineSeparator());
+            System.out.print(text);
+            System.out.flush();
+        };
+    }
+
+    static Sink fileSink(Path path) throws IOException {
+        BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        return new Sink() {
+            private boolean failed;
+
+            @Override
+            public void write(List<String> batch) {
+                if (failed) return;
+                try {
+                    for (String line : batch) {
+                        out.write(line);
+                        out.newLine();
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    failed = true;
+                    System.err.println("Writing log file " + path + " failed: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void close() {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    System.err.println("Closing log file " + path + " failed: " + e.getMessage());
+                }
+            }
+        };
+    }
+}
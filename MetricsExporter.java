@@ -0,0 +1,194 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToDoubleFunction;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes the live metrics of running stations: as JMX MXBeans and/or as a
+ * Prometheus text endpoint at {@code http://localhost:<port>/metrics}.
+ *
+ * Everything is computed from the stations' striped counters and histograms when
+ * it is asked for, so an exporter nobody scrapes costs nothing.
+ */
+class MetricsExporter {
+
+    private final List<StationMetrics> metrics = new ArrayList<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private MetricsExporter(ServiceStation[] stations) {
+        for (ServiceStation station : stations) {
+            metrics.add(new StationMetrics(station));
+        }
+    }
+
+    /** Starts whatever the config asks for; null when it asks for nothing. */
+    static MetricsExporter start(ServiceStation[] stations, StationConfig config) throws IOException {
+        if (!config.jmx && config.metricsPort == 0) return null;
+        MetricsExporter exporter = new MetricsExporter(stations);
+        try {
+            if (config.jmx) exporter.registerMBeans();
+            if (config.metricsPort != 0) exporter.startHttp(config.metricsPort);
+        } catch (IOException e) {
+            exporter.close();
+            throw e;
+        }
+        return exporter;
+    }
+
+    private void registerMBeans() throws IOException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (StationMetrics m : metrics) {
+                ObjectName name = new ObjectName("carwash:type=Station,name=" + m.label());
+                // a previous run in this JVM (--compare-schedulers) may have left one behind
+                if (server.isRegistered(name)) server.unregisterMBean(name);
+                server.registerMBean(m, name);
+                registered.add(name);
+            }
+        } catch (JMException e) {
+            throw new IOException("JMX registration failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void startHttp(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::serve);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    int port() {
+        return server == null ? 0 : server.getAddress().getPort();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = prometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /** All stations in the Prometheus text exposition format. */
+    String prometheusText() {
+        StringBuilder sb = new StringBuilder();
+        header(sb, "carwash_cars_serviced_total", "counter", "Cars that completed service.");
+        for (StationMetrics m : metrics) sample(sb, "carwash_cars_serviced_total", m, "", m.getCarsServiced());
+        header(sb, "carwash_cars_unserviced_total", "counter", "Cars that left without service, by reason.");
+        for (StationMetrics m : metrics) {
+            sample(sb, "carwash_cars_unserviced_total", m, ",reason=\"balked\"", m.getCarsBalked());
+            sample(sb, "carwash_cars_unserviced_total", m, ",reason=\"rejected\"", m.getCarsRejected());
+            sample(sb, "carwash_cars_unserviced_total", m, ",reason=\"reneged\"", m.getCarsReneged());
+        }
+        header(sb, "carwash_cars_in_station", "gauge", "Cars dispatched to the station that have not left.");
+        for (StationMetrics m : metrics) sample(sb, "carwash_cars_in_station", m, "", m.getCarsInStation());
+        header(sb, "carwash_queue_depth", "gauge", "Cars in the waiting area not yet claimed by a pump.");
+        for (StationMetrics m : metrics) sample(sb, "carwash_queue_depth", m, "", m.getQueueDepth());
+        header(sb, "carwash_throughput_cars_per_second", "gauge", "Cars serviced per second of station time.");
+        for (StationMetrics m : metrics) sample(sb, "carwash_throughput_cars_per_second", m, "", m.getThroughputPerSecond());
+
+        header(sb, "carwash_pump_utilization", "gauge", "Share of station time the pump spent servicing.");
+        for (StationMetrics m : metrics) {
+            double[] utilization = m.getPumpUtilization();
+            for (int i = 0; i < utilization.length; i++) {
+                sample(sb, "carwash_pump_utilization", m, ",pump=\"" + (i + 1) + "\"", utilization[i]);
+            }
+        }
+
+        semaphores(sb, "carwash_semaphore_acquires_total", "Completed semaphore waits.", c -> c.acquires.sum());
+        semaphores(sb, "carwash_semaphore_blocked_total", "Semaphore waits that had to block.", c -> c.blocked.sum());
+        semaphores(sb, "carwash_semaphore_wait_seconds_total", "Time spent blocked on the semaphore.",
+                c -> c.waitNanos.sum() / 1e9);
+        semaphores(sb, "carwash_semaphore_timeouts_total", "Timed semaphore waits that gave up without a permit.",
+                c -> c.timedOut.sum());
+
+        summary(sb, "carwash_wait_seconds", LatencyMetrics.Phase.WAIT, "Arrival until service start.");
+        summary(sb, "carwash_end_to_end_seconds", LatencyMetrics.Phase.END_TO_END, "Arrival until departure.");
+        return sb.toString();
+    }
+
+    private void semaphores(StringBuilder sb, String name, String help,
+                            ToDoubleFunction<StationStats.SemaphoreCounters> value) {
+        header(sb, name, "counter", help);
+        for (StationMetrics m : metrics) {
+            for (StationStats.SemaphoreId id : StationStats.SemaphoreId.values()) {
+                double v = value.applyAsDouble(m.station().stats.semaphore(id));
+                sample(sb, name, m, ",semaphore=\"" + id.label() + "\"", v);
+            }
+        }
+    }
+
+    private void summary(StringBuilder sb, String name, LatencyMetrics.Phase phase, String help) {
+        header(sb, name, "summary", help);
+        for (StationMetrics m : metrics) {
+            LatencyHistogram.Snapshot s = m.station().stats.latency.snapshot(phase);
+            for (double p : LatencyMetrics.PERCENTILES) {
+                sample(sb, name, m, ",quantile=\"" + quantile(p) + "\"", s.percentile(p) / 1e9);
+            }
+            sample(sb, name + "_sum", m, "", s.mean() * s.count() / 1e9);
+            sample(sb, name + "_count", m, "", s.count());
+        }
+    }
+
+    /** 99.9 becomes "0.999", without the binary rounding noise of p / 100. */
+    private static String quantile(double percentile) {
+        return BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString();
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, StationMetrics m, String labels, double value) {
+        sb.append(name).append("{station=\"").append(m.label()).append('"').append(labels).append("} ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    void close() {
+        if (server != null) server.stop(0);
+        // the server does not own its executor; without this every run leaves a thread behind
+        if (executor != null) executor.shutdown();
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                mbeans.unregisterMBean(name);
+            } catch (JMException e) {
+                // already gone
+            }
+        }
+        registered.clear();
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * The original monitor-based semaphore: a synchronized counter with
+ * wait()/notifyAll(). Kept as the baseline for {@link SemaphoreBenchmark};
+ * it only supports the real-time clock.
+ */
+class MonitorSemaphore extends Semaphore {
+    private int value;
+
+    public MonitorSemaphore(int value) {
+        super(0);
+        if (value < 0) throw new IllegalArgumentException("Semaphore value must be non-negative.");
+        this.value = value;
+    }
+
+    @Override
+    public synchronized void waitSemaphore() {
+        long startWait = System.nanoTime();
+        boolean blocked = value <= 0;
+        if (blocked) recordBlock();
+        while (value <= 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.out.println("Thread interrupted during waitSemaphore.");
+            }
+        }
+        recordWait(blocked, blocked ? System.nanoTime() - startWait : 0);
+        value--;
+    }
+
+    @Override
+    public synchronized boolean tryWaitSemaphore(long timeoutMillis) throws InterruptedException {
+        long startWait = System.nanoTime();
+        long deadline = startWait + timeoutMillis * 1_000_000L;
+        boolean blocked = value <= 0;
+        if (blocked && timeoutMillis > 0) recordBlock();
+        while (value <= 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                if (blocked && timeoutMillis > 0) recordTimeout(System.nanoTime() - startWait);
+                return false;
+            }
+            wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+        }
+        recordWait(blocked, blocked ? System.nanoTime() - startWait : 0);
+        value--;
+        return true;
+    }
+
+    @Override
+    public synchronized int drainPermits(int max) {
+        int taken = Math.max(0, Math.min(value, max));
+        value -= taken;
+        if (taken > 0) recordWait(false, 0);
+        return taken;
+    }
+
+    @Override
+    public synchronized void signalSemaphore(int permits) {
+        value += permits;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void signalSemaphore() {
+        value++;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized int getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/** Waiting area that hands out the smallest car by a comparator, guarded by the station mutex. */
+class PriorityWaitingArea implements WaitingArea {
+    private final PriorityQueue<Car> queue;
+    private final int capacity;
+    private final Semaphore mutex;
+
+    PriorityWaitingArea(int capacity, Semaphore mutex, Comparator<Car> order) {
+        if (capacity <= 0) throw new IllegalArgumentException("Waiting area capacity must be positive.");
+        this.queue = new PriorityQueue<>(capacity, order);
+        this.capacity = capacity;
+        this.mutex = mutex;
+    }
+
+    @Override
+    public void put(Car car) {
+        mutex.waitSemaphore();
+        try {
+            queue.offer(car);
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public Car take(int pumpId) {
+        mutex.waitSemaphore();
+        try {
+            return queue.poll();
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public void takeBatch(int pumpId, Car[] into, int count) {
+        mutex.waitSemaphore();
+        try {
+            for (int i = 0; i < count; i++) {
+                into[i] = queue.poll();
+            }
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public int size() {
+        mutex.waitSemaphore();
+        try {
+            return queue.size();
+        } finally {
+            mutex.signalSemaphore();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
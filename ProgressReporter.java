@@ -0,0 +1,90 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes pump progress to the GUI from one shared scheduler thread.
+ *
+ * A pump registers the service it starts (car, start time, duration) and then
+ * simply sleeps for the whole duration; each tick computes every busy pump's
+ * progress from the clock and publishes only values that changed. The cost is
+ * one tick per period no matter how many pumps there are, and nothing at all
+ * when no GUI is attached.
+ */
+class ProgressReporter {
+
+    private static final class Service {
+        final String carName;
+        final long startMillis;
+        final long durationMillis;
+        int lastPublished = -1;
+
+        Service(String carName, long startMillis, long durationMillis) {
+            this.carName = carName;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+        }
+    }
+
+    // begin/end and a tick never interleave, so no tick can publish progress for a
+    // service after its pump has released the bay
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Service[] services;
+    private final ScheduledExecutorService scheduler;
+    // the clock of the station whose pumps it shows
+    private final SimClock clock;
+
+    ProgressReporter(int numPumps, int ticksPerSecond, SimClock clock) {
+        if (ticksPerSecond <= 0) throw new IllegalArgumentException("Progress rate must be positive.");
+        this.clock = clock;
+        this.services = new Service[numPumps];
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pump-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodMicros = 1_000_000L / ticksPerSecond;
+        scheduler.scheduleAtFixedRate(this::tick, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    void begin(int pumpId, String carName, long startMillis, long durationMillis) {
+        lock.lock();
+        try {
+            services[pumpId - 1] = new Service(carName, startMillis, durationMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void end(int pumpId) {
+        lock.lock();
+        try {
+            services[pumpId - 1] = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void tick() {
+        long now = clock.currentTimeMillis();
+        lock.lock();
+        try {
+            for (int i = 0; i < services.length; i++) {
+                Service s = services[i];
+                if (s == null) continue;
+                long elapsed = Math.max(0, now - s.startMillis);
+                int progress = (int) Math.min(100, (elapsed * 100) / s.durationMillis);
+                if (progress == s.lastPublished) continue;
+                s.lastPublished = progress;
+                ServiceStation.updatePumpProgress(i + 1, progress, Math.max(0, s.durationMillis - elapsed));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+class Pump implements Runnable {
+    private final int pumpId;
+    private final ServiceStation station;
+    private final StationStats.PumpCounters counters;
+
+    public Pump(int id, ServiceStation station) {
+        this.pumpId = id;
+        this.station = station;
+        this.counters = station.stats.pump(id);
+    }
+
+    @Override
+    public void run() {
+        station.logEvent("Pump " + pumpId + " is operational.");
+        try {
+            serviceCars();
+        } finally {
+            station.logEvent("Pump " + pumpId + " has shut down.");
+            station.pumpExited();
+            station.clock.deregister();
+        }
+    }
+
+    /**
+     * Services cars until the station has drained or the thread is interrupted.
+     * With a batch size above 1 the pump takes every waiting car up to that many
+     * at once and services them together, as a conveyor: one setup, then each car's
+     * own time, with all of them leaving when the batch is done. With routed bays
+     * the pump only waits for the cars queued at its own bay.
+     */
+    private void serviceCars() {
+        Car[] batch = new Car[station.batchSize];
+        Semaphore full = station.fullFor(pumpId);
+        while (true) {
+            try {
+                full.waitSemaphore();
+                // woken with nothing queued and nothing more to come
+                if (station.isDrained()) return;
+
+                // the cars queued behind the first one come with their permits in one go
+                int taken = 1 + (batch.length > 1 ? full.drainPermits(batch.length - 1) : 0);
+                station.waitingArea.takeBatch(pumpId, batch, taken);
+                int count = 0;
+                for (int i = 0; i < taken; i++) {
+                    Car car = batch[i];
+                    batch[i] = null;
+                    if (car == null) continue;
+                    station.taken();
+                    if (car.claim()) {
+                        station.record(Journal.Event.DEQUEUE, pumpId, car.getId(), 0);
+                        batch[count++] = car;
+                    } else {
+                        // the car ran out of patience and has gone; its place is freed all the same
+                        if (car.dropReference()) station.cars.release(car);
+                    }
+                }
+
+                station.empty.signalSemaphore(taken);
+
+                if (count > 0) {
+                    service(batch, count);
+                }
+
+            } catch (InterruptedException e) {
+                station.logEvent("Pump " + pumpId + " interrupted.");
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    /** Services {@code batch[0..count)} in one go and sends the cars on their way. */
+    private void service(Car[] batch, int count) throws InterruptedException {
+        // a routed car was already given this bay, so there is no pump to wait for
+        if (station.bays == null) station.pumps.waitSemaphore();
+
+        long serviceDuration = station.batchSetupMillis;
+        for (int i = 0; i < count; i++) {
+            serviceDuration += station.serviceMillisAt(pumpId, batch[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            Car car = batch[i];
+            car.recordServiceStart();
+            // every car of a batch holds the pump for the whole run
+            station.record(Journal.Event.SERVICE_START, pumpId, car.getId(), serviceDuration);
+            if (ServiceStation.logging()) {
+                station.logEvent("Pump " + pumpId + ": " + car.getCarName() + " begins service.");
+            }
+            if (station.typed) {
+                StationStats.TypeCounters type = station.stats.type(car.getServiceType());
+                type.carsServiced.increment();
+                type.busyNanos.add(station.serviceMillisAt(pumpId, car) * 1_000_000);
+                type.wait.record(car.getWaitNanos());
+            }
+        }
+
+        // the car's name is only built for the GUI and the progress bars
+        String carName = null;
+        if (ServiceStation.showsPumps()) {
+            carName = count > 1 ? batch[0].getCarName() + " +" + (count - 1) : batch[0].getCarName();
+        }
+        ServiceStation.updatePumpState(pumpId, carName, 0);
+        station.syncQueueToGUI();
+
+        SimClock clock = station.clock;
+        long workStart = clock.nanoTime();
+        ProgressReporter reporter = ServiceStation.progressReporter;
+        if (reporter != null) {
+            reporter.begin(pumpId, carName, clock.currentTimeMillis(), serviceDuration);
+        }
+        try {
+            clock.sleep(serviceDuration);
+        } finally {
+            if (reporter != null) reporter.end(pumpId);
+        }
+
+        ServiceStation.updatePumpState(pumpId, carName, 100);
+
+        for (int i = 0; i < count; i++) {
+            Car car = batch[i];
+            batch[i] = null;
+            car.recordServiceEnd();
+            station.record(Journal.Event.SERVICE_END, pumpId, car.getId(), 0);
+            if (ServiceStation.logging()) {
+                station.logEvent("Pump " + pumpId + ": " + car.getCarName() + " finishes service.");
+            }
+            // the car may be recycled as soon as it is signalled: no more use of it after this
+            car.serviceCompleted();
+        }
+
+        if (ServiceStation.logging()) station.logEvent("Pump " + pumpId + ": Bay is now free.");
+        if (station.bays == null) station.pumps.signalSemaphore();
+
+        ServiceStation.updatePumpState(pumpId, null, 0);
+
+        long workDuration = clock.nanoTime() - workStart;
+        counters.busyNanos.add(workDuration);
+        counters.carsServiced.add(count);
+    }
+}
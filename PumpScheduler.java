@@ -0,0 +1,60 @@
+import java.util.Comparator;
+
+/**
+ * Policies for which waiting car a free pump services next. Each one is a
+ * {@link WaitingArea}; the empty/full semaphores around it are the same for all,
+ * so only the order in which cars leave the waiting area changes.
+ */
+enum PumpScheduler {
+    /** Arrival order (the ring or locked waiting area). */
+    FIFO,
+    /** The car with the shortest expected service time first; long services can starve. */
+    SHORTEST_FIRST,
+    /** Fleet cars ahead of walk-ins, with aging so walk-ins are never starved. */
+    PRIORITY,
+    /** Every pump has its own queue and steals from the others when it runs dry. */
+    STEALING;
+
+    /** Shorter service first, then arrival order. */
+    static final Comparator<Car> BY_SERVICE_TIME =
+            Comparator.comparingLong(Car::getServiceMillis).thenComparingLong(Car::getQueuedNanos)
+                    .thenComparingLong(Car::getId);
+
+    static PumpScheduler parse(String value) {
+        try {
+            return valueOf(value.toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid scheduler: " + value
+                    + " (expected fifo, shortest-first, priority or stealing)");
+        }
+    }
+
+    String label() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Fleet cars are ordered as if they had arrived {@code agingMillis} earlier. A
+     * walk-in that has waited that much longer than a fleet car therefore goes
+     * first, which bounds how long a walk-in can be overtaken.
+     */
+    static Comparator<Car> byAgedPriority(long agingMillis) {
+        long boost = agingMillis * 1_000_000L;
+        return Comparator.comparingLong((Car car) ->
+                        car.getPriority() == Car.Priority.FLEET ? car.getQueuedNanos() - boost : car.getQueuedNanos())
+                .thenComparingLong(Car::getId);
+    }
+
+    WaitingArea newWaitingArea(StationConfig config, Semaphore mutex) {
+        switch (this) {
+            case SHORTEST_FIRST:
+                return new PriorityWaitingArea(config.waitingCapacity, mutex, BY_SERVICE_TIME);
+            case PRIORITY:
+                return new PriorityWaitingArea(config.waitingCapacity, mutex, byAgedPriority(config.agingMillis));
+            case STEALING:
+                return new StealingWaitingArea(config.waitingCapacity, config.numPumps);
+            default:
+                return WaitingArea.create(config.waitingArea, config.waitingCapacity, mutex);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Repeats a station run with independent arrival streams until the answer is
+ * statistically sound, rather than trusting one noisy sample.
+ *
+ * Every replication is a discrete-event run ({@link EventSimulation}) of the same
+ * station with its own {@link SplittableRandom}, split off one root stream seeded
+ * by {@code --seed}, so the replications are independent of each other yet the
+ * whole experiment is reproducible. Replications run in batches on the fork-join
+ * pool; after each batch their results are folded into running means and variances
+ * (Welford), and the runner stops once the confidence intervals of both the mean
+ * wait and the 95th percentile wait are narrower than {@code --target-width} percent
+ * of their estimates.
+ *
+ * Usage: java ReplicationRunner [--capacity=N] [--pumps=N] [--cars=N] [--seed=N]
+ *        [--workload=uniform|poisson|mmpp|diurnal] [--arrival-rate=CARS_PER_S] [--fleet-percent=N]
+ *        [--target-width=PERCENT] [--confidence=90|95|99] [--min-replications=N] [--max-replications=N]
+ *        [--batch=N]
+ */
+public class ReplicationRunner {
+
+    static final class Options {
+        int capacity = 5;
+        int pumps = 3;
+        long cars = 10_000;
+        long seed = 42;
+        WorkloadGenerator.Kind workload = WorkloadGenerator.Kind.POISSON;
+        double arrivalRate = 1.0;
+        int fleetPercent = 20;
+        double targetWidth = 0.02;
+        int confidence = 95;
+        int minReplications = 10;
+        int maxReplications = 10_000;
+        int batch = Math.max(4, ForkJoinPool.commonPool().getParallelism() * 2);
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) throw new IllegalArgumentException("Unknown option: " + arg);
+                String name = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                try {
+                    switch (name) {
+                        case "--capacity": o.capacity = Integer.parseInt(value); break;
+                        case "--pumps": o.pumps = Integer.parseInt(value); break;
+                        case "--cars": o.cars = Long.parseLong(value); break;
+                        case "--seed": o.seed = Long.parseLong(value); break;
+                        case "--workload": o.workload = WorkloadGenerator.Kind.parse(value); break;
+                        case "--arrival-rate": o.arrivalRate = Double.parseDouble(value); break;
+                        case "--fleet-percent": o.fleetPercent = Integer.parseInt(value); break;
+                        case "--target-width": o.targetWidth = Double.parseDouble(value) / 100; break;
+                        case "--confidence": o.confidence = Integer.parseInt(value); break;
+                        case "--min-replications": o.minReplications = Integer.parseInt(value); break;
+                        case "--max-replications": o.maxReplications = Integer.parseInt(value); break;
+                        case "--batch": o.batch = Integer.parseInt(value); break;
+                        default: throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+                }
+            }
+            if (o.capacity <= 0 || o.pumps <= 0 || o.cars <= 0 || o.batch <= 0) {
+                throw new IllegalArgumentException("Capacity, pumps, cars and batch size must be positive.");
+            }
+            if (!(o.arrivalRate > 0)) throw new IllegalArgumentException("Arrival rate must be positive.");
+            if (o.fleetPercent < 0 || o.fleetPercent > 100) {
+                throw new IllegalArgumentException("--fleet-percent must be between 0 and 100.");
+            }
+            if (!(o.targetWidth > 0)) throw new IllegalArgumentException("--target-width must be positive.");
+            if (o.confidence != 90 && o.confidence != 95 && o.confidence != 99) {
+                throw new IllegalArgumentException("--confidence must be 90, 95 or 99.");
+            }
+            if (o.minReplications < 2 || o.maxReplications < o.minReplications) {
+                throw new IllegalArgumentException("Need 2 <= --min-replications <= --max-replications.");
+            }
+            return o;
+        }
+
+        /** Two-sided standard normal quantile for the confidence level. */
+        double z() {
+            return confidence == 90 ? 1.6449 : confidence == 95 ? 1.9600 : 2.5758;
+        }
+    }
+
+    /** What one replication measured. */
+    static final class Result {
+        double meanWaitMillis;
+        double p95WaitMillis;
+        double meanServiceMillis;
+        double meanEndToEndMillis;
+        double utilization;
+        double throughputPerSecond;
+    }
+
+    /** Streaming mean and variance of one metric over the replications (Welford). */
+    static final class RunningStats {
+        private long n;
+        private double mean;
+        private double m2;
+
+        void add(double x) {
+            n++;
+            double delta = x - mean;
+            mean += delta / n;
+            m2 += delta * (x - mean);
+        }
+
+        long count() {
+            return n;
+        }
+
+        double mean() {
+            return mean;
+        }
+
+        double stddev() {
+            return n > 1 ? Math.sqrt(m2 / (n - 1)) : 0;
+        }
+
+        /** Half-width of the confidence interval of the mean, with Student's t for the sample size. */
+        double halfWidth(double z) {
+            if (n < 2) return Double.POSITIVE_INFINITY;
+            return studentT(z, n - 1) * stddev() / Math.sqrt(n);
+        }
+
+        /** Half-width as a share of the mean; 0 when both are 0, as for a station that never queues. */
+        double relativeHalfWidth(double z) {
+            double h = halfWidth(z);
+            if (h == 0) return 0;
+            return mean != 0 ? h / Math.abs(mean) : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /** Splits the replications [from, to) until one is left and runs it. */
+    private static final class Replications extends RecursiveAction {
+        private final Options options;
+        private final SplittableRandom[] streams;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        Replications(Options options, SplittableRandom[] streams, Result[] results, int from, int to) {
+            this.options = options;
+            this.streams = streams;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = replicate(options, streams[from]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Replications(options, streams, results, from, mid),
+                    new Replications(options, streams, results, mid, to));
+        }
+    }
+
+    private static final String[] METRICS = {
+        "wait mean (ms)", "wait p95 (ms)", "service mean (ms)", "end-to-end mean (ms)", "utilization", "throughput (cars/s)"
+    };
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: java ReplicationRunner [--capacity=N] [--pumps=N] [--cars=N] [--seed=N]"
+                    + " [--workload=uniform|poisson|mmpp|diurnal] [--arrival-rate=CARS_PER_S] [--fleet-percent=N]"
+                    + " [--target-width=PERCENT] [--confidence=90|95|99] [--min-replications=N]"
+                    + " [--max-replications=N] [--batch=N]");
+            return;
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "Replications: %d pumps, %d waiting spaces, %s arrivals at %.2f cars/s, %d cars each, seed %d",
+                options.pumps, options.capacity, options.workload.label(), options.arrivalRate, options.cars,
+                options.seed));
+        System.out.println(String.format(Locale.ROOT,
+                "Stopping when the %d%% intervals of mean and p95 wait are within +/-%.1f%% (%d-%d replications,"
+                        + " %d per batch)", options.confidence, options.targetWidth * 100, options.minReplications,
+                options.maxReplications, options.batch));
+        System.out.println();
+
+        long start = System.nanoTime();
+        SplittableRandom root = new SplittableRandom(options.seed);
+        RunningStats[] stats = new RunningStats[METRICS.length];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new RunningStats();
+        }
+        double z = options.z();
+        boolean converged = false;
+        // progress is printed at doubling replication counts
+        long nextReport = options.batch;
+        while (!converged && stats[0].count() < options.maxReplications) {
+            int size = (int) Math.min(options.batch, options.maxReplications - stats[0].count());
+            // split on this thread, in order, so the streams depend only on the seed
+            SplittableRandom[] streams = new SplittableRandom[size];
+            for (int i = 0; i < size; i++) {
+                streams[i] = root.split();
+            }
+            Result[] results = new Result[size];
+            ForkJoinPool.commonPool().invoke(new Replications(options, streams, results, 0, size));
+            for (Result r : results) {
+                stats[0].add(r.meanWaitMillis);
+                stats[1].add(r.p95WaitMillis);
+                stats[2].add(r.meanServiceMillis);
+                stats[3].add(r.meanEndToEndMillis);
+                stats[4].add(r.utilization);
+                stats[5].add(r.throughputPerSecond);
+            }
+            double meanWidth = stats[0].relativeHalfWidth(z);
+            double p95Width = stats[1].relativeHalfWidth(z);
+            converged = stats[0].count() >= options.minReplications
+                    && meanWidth <= options.targetWidth && p95Width <= options.targetWidth;
+            if (converged || stats[0].count() >= nextReport || stats[0].count() == options.maxReplications) {
+                System.out.println(String.format(Locale.ROOT,
+                        "%6d replications: wait mean %.2f ms +/-%.2f%%, p95 %.2f ms +/-%.2f%%", stats[0].count(),
+                        stats[0].mean(), meanWidth * 100, stats[1].mean(), p95Width * 100));
+                while (nextReport <= stats[0].count()) nextReport *= 2;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.println();
+        System.out.println(String.format("%-22s %14s %14s %14s %10s", "Metric", "mean",
+                options.confidence + "% +/-", "std dev", "relative"));
+        for (int i = 0; i < METRICS.length; i++) {
+            RunningStats s = stats[i];
+            System.out.println(String.format(Locale.ROOT, "%-22s %14.4f %14.4f %14.4f %9.2f%%", METRICS[i], s.mean(),
+                    s.halfWidth(z), s.stddev(), s.relativeHalfWidth(z) * 100));
+        }
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%s after %d replications (%,d cars) in %.2f s on %d fork-join workers.",
+                converged ? "Converged" : "Stopped at --max-replications", stats[0].count(),
+                stats[0].count() * options.cars, seconds, ForkJoinPool.commonPool().getParallelism()));
+    }
+
+    /** One independent run of the station on its own random stream. */
+    static Result replicate(Options options, SplittableRandom random) {
+        StationConfig config = new StationConfig();
+        config.waitingCapacity = options.capacity;
+        config.numPumps = options.pumps;
+        config.numCars = options.cars;
+        WorkloadGenerator workload = new WorkloadGenerator(options.workload, options.arrivalRate,
+                options.fleetPercent, 1, random);
+        EventSimulation simulation = new EventSimulation(config, workload);
+        long simNanos;
+        try {
+            simNanos = simulation.run();
+        } catch (IOException e) {
+            // generators never fail; only trace replay reads a file
+            throw new UncheckedIOException(e);
+        }
+        StationStats stats = simulation.stats;
+        LatencyHistogram.Snapshot wait = stats.latency.snapshot(LatencyMetrics.Phase.WAIT);
+        long busy = 0;
+        for (int p = 1; p <= options.pumps; p++) {
+            busy += stats.pump(p).busyNanos.sum();
+        }
+        Result r = new Result();
+        r.meanWaitMillis = wait.mean() / 1_000_000.0;
+        r.p95WaitMillis = wait.percentile(95) / 1_000_000.0;
+        r.meanServiceMillis = stats.latency.snapshot(LatencyMetrics.Phase.SERVICE).mean() / 1_000_000.0;
+        r.meanEndToEndMillis = stats.latency.snapshot(LatencyMetrics.Phase.END_TO_END).mean() / 1_000_000.0;
+        r.utilization = simNanos > 0 ? (double) busy / ((double) simNanos * options.pumps) : 0;
+        r.throughputPerSecond = simNanos > 0 ? simulation.carsServiced() / (simNanos / 1_000_000_000.0) : 0;
+        return r;
+    }
+
+    /**
+     * Student's t quantile for {@code df} degrees of freedom from the normal quantile
+     * {@code z} (Cornish-Fisher expansion; within 0.5% from 5 degrees of freedom up).
+     */
+    static double studentT(double z, long df) {
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double z7 = z5 * z * z;
+        double v = df;
+        return z + (z3 + z) / (4 * v) + (5 * z5 + 16 * z3 + 3 * z) / (96 * v * v)
+                + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * v * v * v);
+    }
+}
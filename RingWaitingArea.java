@@ -0,0 +1,33 @@
+/**
+ * Lock-free waiting area on top of a {@link BoundedRing}. Because the empty/full
+ * semaphores already guarantee a free slot or a waiting car, put/take only spin
+ * while another thread is between claiming a slot and publishing it.
+ */
+class RingWaitingArea implements WaitingArea {
+    private final BoundedRing<Car> ring;
+
+    RingWaitingArea(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Waiting area capacity must be positive.");
+        this.ring = new BoundedRing<>(capacity);
+    }
+
+    @Override
+    public void put(Car car) {
+        ring.put(car);
+    }
+
+    @Override
+    public Car take(int pumpId) {
+        return ring.take();
+    }
+
+    @Override
+    public int size() {
+        return ring.size();
+    }
+
+    @Override
+    public int capacity() {
+        return ring.capacity();
+    }
+}
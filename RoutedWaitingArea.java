@@ -0,0 +1,100 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One queue per bay, filled by a {@link BayRouter}: an arriving car is queued at
+ * the bay expected to finish it first. Each bay serves its own queue in arrival
+ * order and never takes another bay's cars, since it may not offer their service.
+ * Routing and queueing happen under one lock, so the router's bookings always
+ * match the queues.
+ */
+class RoutedWaitingArea implements WaitingArea {
+    private final BayRouter router;
+    private final ArrayDeque<Car>[] queues;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final SimClock clock;
+    private final int capacity;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    RoutedWaitingArea(int capacity, BayRouter.BaySpec[] bays, BayRouter router, SimClock clock) {
+        if (capacity <= 0) throw new IllegalArgumentException("Waiting area capacity must be positive.");
+        this.capacity = capacity;
+        this.router = router;
+        this.clock = clock;
+        this.queues = new ArrayDeque[bays.length];
+        for (int i = 0; i < bays.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    /** Queues the car at its bay and records which one on the car. */
+    @Override
+    public void put(Car car) {
+        lock.lock();
+        try {
+            int bay = router.route(car, clock.nanoTime());
+            queues[bay].addLast(car);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Car take(int pumpId) {
+        lock.lock();
+        try {
+            Car car = queues[pumpId - 1].pollFirst();
+            if (car != null) {
+                size--;
+                router.taken(pumpId - 1, 1);
+            }
+            return car;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void takeBatch(int pumpId, Car[] into, int count) {
+        lock.lock();
+        try {
+            int taken = 0;
+            for (int i = 0; i < count; i++) {
+                into[i] = queues[pumpId - 1].pollFirst();
+                if (into[i] != null) taken++;
+            }
+            size -= taken;
+            router.taken(pumpId - 1, taken);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The car stays queued for its pump to skip, but its bay time is no longer expected. */
+    @Override
+    public void abandoned(Car car) {
+        lock.lock();
+        try {
+            router.cancel(car.getBay() - 1, car.getBookedNanos());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
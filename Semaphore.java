@@ -0,0 +1,288 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ * Counting semaphore behind every synchronization point in the station.
+ *
+ * Permits live in the state word of an {@link AbstractQueuedSynchronizer}: an
+ * uncontended wait or signal is a single CAS, and a signal unparks only the
+ * longest-waiting thread instead of waking every waiter. A fair semaphore never
+ * lets a newly arriving thread take a permit ahead of one that is already queued.
+ */
+class Semaphore {
+
+    private static final class Sync extends AbstractQueuedSynchronizer {
+        private final boolean fair;
+
+        Sync(int permits, boolean fair) {
+            setState(permits);
+            this.fair = fair;
+        }
+
+        int permits() {
+            return getState();
+        }
+
+        @Override
+        protected int tryAcquireShared(int acquires) {
+            for (;;) {
+                if (fair && hasQueuedPredecessors()) return -1;
+                int available = getState();
+                int remaining = available - acquires;
+                if (remaining < 0 || compareAndSetState(available, remaining)) return remaining;
+            }
+        }
+
+        @Override
+        protected boolean tryReleaseShared(int releases) {
+            for (;;) {
+                int current = getState();
+                int next = current + releases;
+                if (next < current) throw new IllegalStateException("Semaphore permit count overflow.");
+                if (compareAndSetState(current, next)) return true;
+            }
+        }
+
+        /** Takes up to {@code max} free permits in one CAS; never waits, even behind queued threads. */
+        int drain(int max) {
+            for (;;) {
+                int available = getState();
+                int taken = Math.min(available, max);
+                if (taken <= 0 || compareAndSetState(available, available - taken)) return Math.max(taken, 0);
+            }
+        }
+    }
+
+    // a semaphore outside a station only ever runs in real time
+    private static final SimClock WALL_CLOCK = new RealClock();
+
+    private final Sync sync;
+    // the owning station's clock; wait times, journal and profile use its time
+    private final SimClock clock;
+    // the same clock when it is virtual, otherwise null
+    private final VirtualClock virtual;
+    // where acquires and wait times are counted; null for semaphores outside a station
+    private final StationStats.SemaphoreCounters counters;
+    // only used under a VirtualClock: blocked participants, released in FIFO order
+    private final ArrayDeque<VirtualClock.Waiter> virtualWaiters = new ArrayDeque<>();
+
+    public Semaphore(int value) {
+        this(value, false, WALL_CLOCK, null);
+    }
+
+    public Semaphore(int value, boolean fair) {
+        this(value, fair, WALL_CLOCK, null);
+    }
+
+    public Semaphore(int value, SimClock clock, StationStats.SemaphoreCounters counters) {
+        this(value, false, clock, counters);
+    }
+
+    public Semaphore(int value, boolean fair, SimClock clock, StationStats.SemaphoreCounters counters) {
+        if (value < 0) throw new IllegalArgumentException("Semaphore value must be non-negative.");
+        this.sync = new Sync(value, fair);
+        this.clock = clock;
+        this.virtual = clock instanceof VirtualClock ? (VirtualClock) clock : null;
+        this.counters = counters;
+    }
+
+    public void waitSemaphore() {
+        if (virtual != null) {
+            waitVirtual(virtual);
+            return;
+        }
+        // fast path: no clock reads and no wait time to record
+        if (sync.tryAcquireShared(1) >= 0) {
+            recordWait(false, 0);
+            return;
+        }
+        long startWait = clock.nanoTime();
+        recordBlock();
+        sync.acquireShared(1);
+        recordWait(true, clock.nanoTime() - startWait);
+    }
+
+    /**
+     * Waits at most {@code timeoutMillis} of station time for a permit; false if none
+     * came in time. A timeout of 0 only takes a permit that is free right now.
+     */
+    public boolean tryWaitSemaphore(long timeoutMillis) throws InterruptedException {
+        if (virtual != null) {
+            return tryWaitVirtual(virtual, timeoutMillis);
+        }
+        if (sync.tryAcquireShared(1) >= 0) {
+            recordWait(false, 0);
+            return true;
+        }
+        if (timeoutMillis <= 0) return false;
+        long startWait = clock.nanoTime();
+        recordBlock();
+        if (!sync.tryAcquireSharedNanos(1, TimeUnit.MILLISECONDS.toNanos(timeoutMillis))) {
+            recordTimeout(clock.nanoTime() - startWait);
+            return false;
+        }
+        recordWait(true, clock.nanoTime() - startWait);
+        return true;
+    }
+
+    /**
+     * Takes up to {@code max} permits that are free right now, in one operation;
+     * returns how many it got. Never blocks.
+     */
+    public int drainPermits(int max) {
+        if (virtual == null) return recordDrain(sync.drain(max));
+        virtual.lock();
+        try {
+            return recordDrain(sync.drain(max));
+        } finally {
+            virtual.unlock();
+        }
+    }
+
+    private int recordDrain(int taken) {
+        if (taken > 0) recordWait(false, 0);
+        return taken;
+    }
+
+    public void signalSemaphore() {
+        ContentionProfiler profiler = ServiceStation.profiler;
+        if (profiler != null && counters != null) profiler.released(counters, clock.nanoTime());
+        if (virtual != null) {
+            signalVirtual(virtual);
+            return;
+        }
+        sync.releaseShared(1);
+    }
+
+    /** Returns {@code permits} permits at once, waking up to that many waiters. */
+    public void signalSemaphore(int permits) {
+        if (permits <= 0) return;
+        ContentionProfiler profiler = ServiceStation.profiler;
+        if (profiler != null && counters != null) profiler.released(counters, clock.nanoTime());
+        if (virtual != null) {
+            virtual.lock();
+            try {
+                for (int i = 0; i < permits; i++) {
+                    signalVirtual(virtual);
+                }
+            } finally {
+                virtual.unlock();
+            }
+            return;
+        }
+        sync.releaseShared(permits);
+    }
+
+    public int getValue() {
+        return sync.permits();
+    }
+
+    public boolean isFair() {
+        return sync.fair;
+    }
+
+    /** Journals and profiles that the calling thread is about to block. */
+    void recordBlock() {
+        if (counters == null) return;
+        Journal journal = ServiceStation.journal;
+        if (journal != null) {
+            journal.record(Journal.Event.SEMAPHORE_BLOCK, clock.nanoTime(), counters.station, 0, counters.id.ordinal(),
+                    Thread.currentThread().getId(), 0);
+        }
+        ContentionProfiler profiler = ServiceStation.profiler;
+        if (profiler != null) profiler.blocking(counters, clock.nanoTime(), queuedWaiters() + 1);
+    }
+
+    /** Counts one completed wait and, if it had to block, how long that took. */
+    void recordWait(boolean blocked, long waitNanos) {
+        if (counters == null) return;
+        counters.record(blocked, waitNanos);
+        Journal journal = ServiceStation.journal;
+        if (blocked && journal != null) {
+            journal.record(Journal.Event.SEMAPHORE_UNBLOCK, clock.nanoTime(), counters.station, 0, counters.id.ordinal(),
+                    Thread.currentThread().getId(), waitNanos);
+        }
+        ContentionProfiler profiler = ServiceStation.profiler;
+        if (profiler != null) profiler.acquired(counters, clock.nanoTime(), blocked, waitNanos, blocked ? queuedWaiters() : 0);
+    }
+
+    /** Counts a timed wait that blocked for {@code waitNanos} and gave up without a permit. */
+    void recordTimeout(long waitNanos) {
+        if (counters == null) return;
+        counters.recordTimeout(waitNanos);
+        Journal journal = ServiceStation.journal;
+        if (journal != null) {
+            journal.record(Journal.Event.SEMAPHORE_TIMEOUT, clock.nanoTime(), counters.station, 0, counters.id.ordinal(),
+                    Thread.currentThread().getId(), waitNanos);
+        }
+        ContentionProfiler profiler = ServiceStation.profiler;
+        if (profiler != null) profiler.timedOut(counters, clock.nanoTime(), waitNanos, queuedWaiters());
+    }
+
+    /** Threads queued for a permit; walks the queue, so only for profiling. */
+    private int queuedWaiters() {
+        return virtual != null ? virtualWaiters.size() : sync.getQueueLength();
+    }
+
+    // The clock has to know when a participant blocks and when it becomes runnable
+    // again, so in virtual mode the permit is handed straight to the oldest waiter
+    // under the clock's lock.
+    private void waitVirtual(VirtualClock clock) {
+        clock.lock();
+        try {
+            if (sync.tryAcquireShared(1) >= 0) {
+                recordWait(false, 0);
+                return;
+            }
+            long startWait = clock.nanoTime();
+            recordBlock();
+            VirtualClock.Waiter w = clock.newWaiter();
+            virtualWaiters.add(w);
+            clock.block(w);
+            recordWait(true, clock.nanoTime() - startWait);
+        } finally {
+            clock.unlock();
+        }
+    }
+
+    private boolean tryWaitVirtual(VirtualClock clock, long timeoutMillis) {
+        clock.lock();
+        try {
+            if (sync.tryAcquireShared(1) >= 0) {
+                recordWait(false, 0);
+                return true;
+            }
+            if (timeoutMillis <= 0) return false;
+            long startWait = clock.nanoTime();
+            recordBlock();
+            VirtualClock.Waiter w = clock.newWaiter();
+            virtualWaiters.add(w);
+            clock.blockUntil(w, startWait + timeoutMillis * 1_000_000L);
+            // still queued: the clock woke it, no permit was handed over
+            if (virtualWaiters.remove(w)) {
+                recordTimeout(clock.nanoTime() - startWait);
+                return false;
+            }
+            recordWait(true, clock.nanoTime() - startWait);
+            return true;
+        } finally {
+            clock.unlock();
+        }
+    }
+
+    private void signalVirtual(VirtualClock clock) {
+        clock.lock();
+        try {
+            VirtualClock.Waiter w = virtualWaiters.poll();
+            if (w != null) {
+                clock.cancelTimeout(w);
+                clock.handOff(w);
+            } else {
+                sync.releaseShared(1);
+            }
+        } finally {
+            clock.unlock();
+        }
+    }
+}
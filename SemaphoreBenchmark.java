@@ -0,0 +1,76 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntFunction;
+
+/**
+ * Throughput comparison of the semaphore implementations under heavy contention:
+ * many car-like threads repeatedly take one of a few permits (the pump bays), do a
+ * little work and give it back.
+ *
+ * Usage: java SemaphoreBenchmark [threads] [permits] [roundsPerThread]
+ */
+public class SemaphoreBenchmark {
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int permits = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        System.out.println("Semaphore throughput: " + threads + " threads, " + permits
+                + " permits, " + rounds + " wait/signal rounds per thread");
+
+        // first pass warms up the JIT, second pass is reported
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            run("monitor (wait/notifyAll)", MonitorSemaphore::new, threads, permits, rounds, report);
+            run("AQS non-fair", p -> new Semaphore(p, false), threads, permits, rounds, report);
+            run("AQS fair", p -> new Semaphore(p, true), threads, permits, rounds, report);
+        }
+    }
+
+    private static void run(String name, IntFunction<Semaphore> factory, int threads, int permits,
+                            int rounds, boolean report) throws InterruptedException {
+        Semaphore sem = factory.apply(permits);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long local = 0;
+                for (int r = 0; r < rounds; r++) {
+                    sem.waitSemaphore();
+                    try {
+                        for (int k = 0; k < 50; k++) local += k ^ r;
+                    } finally {
+                        sem.signalSemaphore();
+                    }
+                }
+                sink += local;
+                done.countDown();
+            });
+            t.setDaemon(true);
+            t.start();
+        }
+
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        if (report) {
+            long ops = (long) threads * rounds;
+            double seconds = elapsed / 1_000_000_000.0;
+            System.out.println(String.format("  %-26s %10.0f ops/s  (%.1f ms)", name, ops / seconds, elapsed / 1_000_000.0));
+        }
+    }
+}
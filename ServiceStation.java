@@ -4,35 +4,287 @@
  * IDs: 20230541, 20230583, 20231010, 20231212, 20231131
  */
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.InputMismatchException;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.SwingUtilities;
 
 public class ServiceStation {
 
-    public static Queue<Car> waitingQueue;
-    public static Semaphore mutex;
-    public static Semaphore empty;
-    public static Semaphore full;
-    public static Semaphore pumps;
-    
+    /**
+     * Lifecycle of a station: {@link #start} launches the pumps, {@link #stopAccepting}
+     * turns new cars away and lets the ones inside finish, and once the last car has
+     * left and every pump has exited the station is terminated.
+     */
+    enum State {
+        NEW, RUNNING, DRAINING, TERMINATED
+    }
+
+    // One station: its own clock, waiting area, semaphores and statistics.
+    // A sharded run creates several that share nothing but the log, and the clock
+    // too when the dispatcher has to compare their loads.
+    final int index;
+    final SimClock clock;
+    final String name;
+    final WaitingArea waitingArea;
+    final Semaphore mutex;
+    final Semaphore empty;
+    final Semaphore full;
+    final Semaphore pumps;
+    final int numPumps;
+    final StationStats stats;
+    final CarPool cars;
+    final AdmissionControl admission;
+    // cars a pump services at once, the setup every service run pays, and each car's
+    // share of it (-1: the car's own service time)
+    final int batchSize;
+    final long batchSetupMillis;
+    final long batchCarMillis;
+    // null unless --bays: what each bay offers and how fast it is; cars are then
+    // routed to a bay on arrival and each bay has its own full semaphore
+    final BayRouter.BaySpec[] bays;
+    private final Semaphore[] bayFull;
+    // whether cars have service types, so per-type statistics are worth keeping
+    final boolean typed;
+    // prepended to every log line of this station; empty when it runs alone
+    private final String logPrefix;
+    // cars dispatched here that have not left yet
+    private final AtomicInteger occupancy = new AtomicInteger();
+    // cars dispatched here that no pump has taken yet
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger runningPumps = new AtomicInteger();
+    private final AtomicReference<State> state = new AtomicReference<>(State.NEW);
+    // set once the idle pumps have been told to exit
+    private final AtomicBoolean drained = new AtomicBoolean();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    // station time the pumps were started and the station terminated; Long.MIN_VALUE until then
+    volatile long startedNanos = Long.MIN_VALUE;
+    volatile long finishedNanos = Long.MIN_VALUE;
+
+    // recycled cars kept per station; more cars in flight than this are allocated
+    private static final int CAR_POOL_SIZE = 1024;
+    // how long a run waits for the cars still inside after the last arrival
+    private static final long DRAIN_TIMEOUT_MINUTES = 10;
+
     private static CarWashModel guiModel = null;
     private static CarWashGUI gui = null;
-    
-    public static final AtomicLong totalWaitTime = new AtomicLong(0);
-    public static final AtomicLong totalWorkTime = new AtomicLong(0);
-    public static final AtomicLong semaphoreWaitCount = new AtomicLong(0);
 
-    public static synchronized void log(String message) {
-        System.out.println(message);
+    // null unless --journal is given
+    static Journal journal = null;
+    // null unless --profile is given
+    static ContentionProfiler profiler = null;
+    private static boolean headless = false;
+    // null when nobody is watching the progress bars
+    static ProgressReporter progressReporter = null;
+
+    // synchronous until main has read the options; its lock is a ReentrantLock, not a
+    // monitor, so virtual threads unmount while they wait for it
+    private static LogPipeline logPipeline = LogPipeline.synchronous(
+            List.of(LogPipeline.consoleSink(), ServiceStation::logToGUI));
+
+    /** A station on its own real-time clock. */
+    ServiceStation(int index, StationConfig config) {
+        this(index, config, new RealClock());
+    }
+
+    /**
+     * Station number {@code index} (from 0) with the configured capacity, pump count
+     * and scheduler, running on {@code clock}.
+     */
+    ServiceStation(int index, StationConfig config, SimClock clock) {
+        this.index = index;
+        this.clock = clock;
+        this.name = config.stations == 1 ? "" : "S" + (index + 1);
+        this.logPrefix = name.isEmpty() ? "" : "[" + name + "] ";
+        this.numPumps = config.numPumps;
+        this.stats = new StationStats(index, numPumps);
+        this.mutex = new Semaphore(1, clock, stats.semaphore(StationStats.SemaphoreId.MUTEX));
+        this.bays = config.bays;
+        this.typed = config.bays != null || config.serviceMix != null;
+        this.waitingArea = bays != null ? new RoutedWaitingArea(config.waitingCapacity, bays,
+                new BayRouter(bays, config.batchSize, config.batchSetupMillis, config.batchCarMillis), clock)
+                : config.scheduler.newWaitingArea(config, mutex);
+        this.empty = new Semaphore(config.waitingCapacity, clock, stats.semaphore(StationStats.SemaphoreId.EMPTY));
+        this.full = new Semaphore(0, clock, stats.semaphore(StationStats.SemaphoreId.FULL));
+        if (bays != null) {
+            // all of them count as "full" in the statistics
+            bayFull = new Semaphore[numPumps];
+            for (int i = 0; i < numPumps; i++) {
+                bayFull[i] = new Semaphore(0, clock, stats.semaphore(StationStats.SemaphoreId.FULL));
+            }
+        } else {
+            bayFull = null;
+        }
+        this.pumps = new Semaphore(numPumps, clock, stats.semaphore(StationStats.SemaphoreId.PUMPS));
+        this.cars = new CarPool(this, CAR_POOL_SIZE);
+        this.admission = new AdmissionControl(config, clock);
+        this.batchSize = config.batchSize;
+        this.batchSetupMillis = config.batchSetupMillis;
+        this.batchCarMillis = config.batchCarMillis;
+    }
+
+    /** Starts the pumps; from now on the station accepts cars. */
+    void start(ThreadMode threadMode) {
+        if (!state.compareAndSet(State.NEW, State.RUNNING)) {
+            throw new IllegalStateException("Station " + (index + 1) + " has already been started.");
+        }
+        String threadPrefix = name.isEmpty() ? "" : name + "-";
+        startedNanos = clock.nanoTime();
+        runningPumps.set(numPumps);
+        for (int i = 0; i < numPumps; i++) {
+            Pump pump = new Pump(i + 1, this);
+            Thread pumpThread = threadMode.newThread(pump, threadPrefix + "Pump-" + (i + 1), true);
+            clock.register();
+            pumpThread.start();
+        }
+    }
+
+    /** The semaphore counting cars queued for {@code pumpId}: its bay's when routed, otherwise the shared one. */
+    Semaphore fullFor(int pumpId) {
+        return bayFull == null ? full : bayFull[pumpId - 1];
+    }
+
+    /** Cars in the waiting area, read without taking its lock. */
+    int queuedCars() {
+        if (bayFull == null) return full.getValue();
+        int sum = 0;
+        for (Semaphore s : bayFull) sum += s.getValue();
+        return sum;
+    }
+
+    /** How long {@code car} takes at {@code pumpId}: its own time, or the batch share, scaled by the bay's speed. */
+    long serviceMillisAt(int pumpId, Car car) {
+        long millis = batchCarMillis >= 0 ? batchCarMillis : car.getServiceMillis();
+        return bays == null ? millis : bays[pumpId - 1].serviceMillis(millis);
+    }
+
+    /** Cars dispatched here that have not left yet. */
+    int load() {
+        return occupancy.get();
+    }
+
+    State state() {
+        return state.get();
+    }
+
+    /** Counts a car dispatched here; fails once the station has stopped accepting cars. */
+    void arrived() {
+        occupancy.incrementAndGet();
+        pending.incrementAndGet();
+        if (state.get() != State.RUNNING) {
+            pending.decrementAndGet();
+            occupancy.decrementAndGet();
+            checkDrained();
+            throw new IllegalStateException("Station " + (index + 1) + " is not accepting cars.");
+        }
+    }
+
+    /** A pump has taken a car out of the waiting area. */
+    void taken() {
+        if (pending.decrementAndGet() == 0) checkDrained();
+    }
+
+    /** A car has given up before it reached the waiting area, so no pump will take it. */
+    void turnedAway() {
+        if (pending.decrementAndGet() == 0) checkDrained();
+    }
+
+    void departed() {
+        if (occupancy.decrementAndGet() == 0) checkDrained();
+    }
+
+    /** Turns new cars away; the cars already here are still serviced. */
+    void stopAccepting() {
+        if (state.compareAndSet(State.NEW, State.TERMINATED)) {
+            finishedNanos = clock.nanoTime();
+            terminated.countDown();
+            return;
+        }
+        state.compareAndSet(State.RUNNING, State.DRAINING);
+        checkDrained();
+    }
+
+    /** Whether a pump that got past the full semaphore was woken to exit rather than for a car. */
+    boolean isDrained() {
+        return drained.get();
+    }
+
+    void pumpExited() {
+        if (runningPumps.decrementAndGet() == 0) checkDrained();
+    }
+
+    /**
+     * Waits until the last car has left and every pump has exited, at most
+     * {@code timeout}; true if the station terminated.
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /** Station time from the start until termination, or until now while it runs. */
+    long elapsedNanos() {
+        long started = startedNanos;
+        if (started == Long.MIN_VALUE) return 0;
+        long finished = finishedNanos;
+        return (finished == Long.MIN_VALUE ? clock.nanoTime() : finished) - started;
+    }
+
+    private void checkDrained() {
+        if (state.get() != State.DRAINING) return;
+        if (pending.get() == 0 && drained.compareAndSet(false, true)) {
+            // nothing waits and nothing more will come: one permit per pump lets
+            // every pump blocked on the empty waiting area wake up and exit
+            for (int i = 0; i < numPumps; i++) fullFor(i + 1).signalSemaphore();
+        }
+        if (occupancy.get() == 0 && runningPumps.get() == 0 && state.compareAndSet(State.DRAINING, State.TERMINATED)) {
+            finishedNanos = clock.nanoTime();
+            terminated.countDown();
+        }
+    }
+
+    /** Appends an event about one of this station's cars to the journal, if there is one. */
+    void record(Journal.Event event, int pumpId, long carId, long value) {
+        Journal j = journal;
+        if (j != null) j.record(event, clock.nanoTime(), index, pumpId, 0, carId, value);
+    }
+
+    /**
+     * Whether anything reads the log. Per-car messages are only built when it does,
+     * so a quiet run spends nothing on log text.
+     */
+    static boolean logging() {
+        return logPipeline.hasSinks();
+    }
+
+    void logEvent(String message) {
+        logPipeline.publish(logPrefix.isEmpty() ? message : logPrefix + message);
+    }
+
+    public static void log(String message) {
+        logPipeline.publish(message);
+    }
+
+    private static void logToGUI(List<String> batch) {
         if (guiModel != null) {
-            guiModel.fireLog(message);
+            guiModel.fireLogBatch(batch);
         }
     }
     
+    /** Whether a GUI or progress reporter shows which car is at each pump. */
+    static boolean showsPumps() {
+        return guiModel != null || progressReporter != null;
+    }
+
     public static void updatePumpState(int pumpId, String carName, int progress) {
         if (guiModel != null) {
             if (progress == 0 && carName == null) {
@@ -45,30 +297,58 @@ public class ServiceStation {
         }
     }
     
-    public static void syncQueueToGUI() {
+    public static void updatePumpProgress(int pumpId, int progress, long remainingMs) {
         if (guiModel != null) {
-            java.util.List<String> snapshot = new java.util.ArrayList<>();
-            for (Car c : waitingQueue) {
-                snapshot.add(c.getCarName());
-            }
-            guiModel.fireLogWithLevel("DEBUG", "Queue size: " + snapshot.size());
+            guiModel.setPumpProgress(pumpId - 1, progress, remainingMs);
+        }
+    }
+
+    void syncQueueToGUI() {
+        if (guiModel != null) {
+            guiModel.fireLogWithLevel("DEBUG", "Queue size: " + queuedCars());
         }
     }
 
     public static void main(String[] args) {
+        StationConfig config;
+        try {
+            config = StationConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(StationConfig.usage());
+            return;
+        }
+        // arrival gaps, service times, customer classes and dispatch choices all derive
+        // from this seed, so runs with the same seed see the same arrival trace
+        long seed = config.seed != null ? config.seed : new Random().nextLong();
+
+        if (config.writeTracePath != null) {
+            writeTrace(config, seed);
+            return;
+        }
+        if (config.tracePath != null) {
+            try (TraceFile.Reader trace = TraceFile.open(Path.of(config.tracePath))) {
+                if (config.numCars < 0 || config.numCars > trace.count()) config.numCars = trace.count();
+            } catch (IOException e) {
+                System.out.println("Cannot read trace: " + e.getMessage());
+                return;
+            }
+        } else if (config.numCars < 0) {
+            config.numCars = 20;
+        }
+
         Scanner scanner = new Scanner(System.in);
-        int waitingCapacity;
-        int numPumps;
+        int waitingCapacity = config.waitingCapacity;
+        int numPumps = config.numPumps;
 
-        while (true) {
+        while (waitingCapacity < 0) {
             try {
                 System.out.print("Enter Waiting area capacity (1-10): ");
                 waitingCapacity = scanner.nextInt();
 
-                if (waitingCapacity >= 1 && waitingCapacity <= 10) {
-                    break;
-                } else {
+                if (waitingCapacity < 1 || waitingCapacity > 10) {
                     log("Invalid capacity. Value must be between 1 and 10.");
+                    waitingCapacity = -1;
                 }
             } catch (InputMismatchException e) {
                 log("Invalid input. Please enter a whole number.");
@@ -76,15 +356,14 @@ public class ServiceStation {
             }
         }
 
-        while (true) {
+        while (numPumps < 0) {
             try {
                 System.out.print("Enter Number of service bays (pumps): ");
                 numPumps = scanner.nextInt();
 
-                if (numPumps > 0) {
-                    break;
-                } else {
+                if (numPumps <= 0) {
                     log("Invalid pump count. Value must be positive (greater than 0).");
+                    numPumps = -1;
                 }
             } catch (InputMismatchException e) {
                 log("Invalid input. Please enter a whole number.");
@@ -92,70 +371,615 @@ public class ServiceStation {
             }
         }
 
+        config.waitingCapacity = waitingCapacity;
+        config.numPumps = numPumps;
+        scanner.close();
+
+        headless = config.headless;
+        if (config.stations > 1 && !headless) {
+            System.out.println("--stations needs --headless: the GUI shows a single station.");
+            return;
+        }
+        if (config.compareSchedulers && !headless) {
+            System.out.println("--compare-schedulers needs --headless.");
+            return;
+        }
+        if (config.compareSchedulers && config.journalDir != null) {
+            System.out.println("--journal records a single run; it cannot be combined with --compare-schedulers.");
+            return;
+        }
+        if (config.compareSchedulers && config.profilePath != null) {
+            System.out.println("--profile records a single run; it cannot be combined with --compare-schedulers.");
+            return;
+        }
+        if (config.compareBatches != null && (!headless || config.compareSchedulers)) {
+            System.out.println("--compare-batches needs --headless and cannot be combined with --compare-schedulers.");
+            return;
+        }
+        if (config.compareBatches != null && (config.journalDir != null || config.profilePath != null)) {
+            System.out.println("--journal and --profile record a single run; they cannot be combined with --compare-batches.");
+            return;
+        }
+        if (config.bays != null) {
+            String conflict = bayConflict(config);
+            if (conflict != null) {
+                System.out.println(conflict);
+                return;
+            }
+        }
+        if ("events".equals(config.engine)) {
+            String conflict = eventEngineConflict(config);
+            if (conflict != null) {
+                System.out.println(conflict);
+                return;
+            }
+        }
+        try {
+            logPipeline = createLogPipeline(config);
+        } catch (IOException e) {
+            System.out.println("Cannot open log file: " + e.getMessage());
+            return;
+        }
+        try {
+            run(config, seed);
+        } finally {
+            // stops the writer thread and closes the log file, whichever way the run ended
+            logPipeline.close();
+        }
+    }
+
+    /** Everything after the options are settled and the log is open: the run itself and its report. */
+    private static void run(StationConfig config, long seed) {
+        ThreadMode threadMode = config.threadMode;
+        if (threadMode == null) {
+            threadMode = headless ? ThreadMode.POOLED : ThreadMode.PLATFORM;
+        }
+        try {
+            threadMode.checkSupported();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (config.journalDir != null) {
+            try {
+                journal = Journal.open(Path.of(config.journalDir), config.journalSegmentMb, config);
+            } catch (IOException e) {
+                System.out.println("Cannot open journal: " + e.getMessage());
+                return;
+            }
+        }
+        if (config.profilePath != null) {
+            profiler = new ContentionProfiler(config.stations, config.profileEvents);
+        }
+
+        if ("events".equals(config.engine)) {
+            runEvents(config, seed);
+            return;
+        }
+
+        ServiceStation[] stations;
+        try {
+            if (config.compareSchedulers) {
+                compareSchedulers(config, threadMode, seed);
+                return;
+            }
+            if (config.compareBatches != null) {
+                compareBatches(config, threadMode, seed);
+                return;
+            }
+            stations = simulate(config, threadMode, seed);
+            if (stations == null) return;
+        } catch (IOException e) {
+            System.out.println("Cannot read trace: " + e.getMessage());
+            return;
+        }
+        if (journal != null) {
+            journal.close();
+            System.out.println("Journal: " + journal.recordedCount() + " events in " + journal.segmentCount()
+                    + " segment(s) under " + config.journalDir);
+        }
+        StationStats total = new StationStats(config.numPumps);
+        for (ServiceStation station : stations) {
+            total.add(station.stats);
+        }
+        if (stations.length > 1) {
+            printStationSummary(stations);
+        }
+        printEfficiencyAnalysis(total);
+        if (stations[0].typed) {
+            printServiceTypes(config, stations, total);
+        }
+        if (profiler != null) {
+            System.out.println("Contention Profile:");
+            System.out.print(profiler.report());
+            try {
+                profiler.writeChromeTrace(Path.of(config.profilePath));
+                System.out.println("\nProfile: " + profiler.eventCount() + " timeline events written to " + config.profilePath
+                        + (profiler.droppedCount() > 0 ? " (" + profiler.droppedCount() + " more dropped)" : ""));
+            } catch (IOException e) {
+                System.out.println("Cannot write profile: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Runs one simulation to completion and returns its stations; null if it could not start. */
+    private static ServiceStation[] simulate(StationConfig config, ThreadMode threadMode, long seed) throws IOException {
+        Random random = new Random(seed);
+
         log("\n--- Car Wash Simulation Starting ---");
-        log("Waiting Area: " + waitingCapacity);
-        log("Service Bays: " + numPumps);
+        log("Waiting Area: " + config.waitingCapacity);
+        log("Service Bays: " + config.numPumps + (config.bays != null ? " (" + bayLabels(config.bays) + ")" : ""));
+        if (headless) log("Mode: headless (simulated clock), Cars: " + config.numCars);
+        log(config.tracePath != null ? "Arrivals: trace " + config.tracePath
+                : "Arrivals: " + config.workload.label() + (config.workload == WorkloadGenerator.Kind.UNIFORM ? ""
+                        : " at " + config.arrivalRate + " cars/s"));
+        log("Threads: " + threadMode.name().toLowerCase() + ", Waiting area: " + config.waitingArea
+                + ", Scheduler: " + config.scheduler.label());
+        if (config.stations > 1) {
+            log("Stations: " + config.stations + ", Dispatch: " + config.dispatch.name().toLowerCase().replace('_', '-'));
+        }
         log("------------------------------------\n");
 
-        waitingQueue = new LinkedList<>();
-        mutex = new Semaphore(1);
-        empty = new Semaphore(waitingCapacity);
-        full = new Semaphore(0);
-        pumps = new Semaphore(numPumps);
-
-        final int finalNumPumps = numPumps;
-        final int finalWaitingCapacity = waitingCapacity;
-        SwingUtilities.invokeLater(() -> {
-            guiModel = new CarWashModel(finalNumPumps);
-            gui = new CarWashGUI(guiModel, null, finalWaitingCapacity);
-            log("GUI initialized.");
-        });
-        
-        try { Thread.sleep(500); } catch (InterruptedException e) {}
+        // Comparing loads only means something on one time line, so load-aware dispatch
+        // puts every station on the same clock. Round-robin shards never look at each
+        // other: each gets its own clock and its own copy of the arrivals.
+        boolean sharedClock = config.stations > 1 && config.dispatch != Dispatcher.Policy.ROUND_ROBIN;
+        SimClock runClock = newClock();
+        ServiceStation[] stations = new ServiceStation[config.stations];
+        for (int i = 0; i < stations.length; i++) {
+            stations[i] = new ServiceStation(i, config, sharedClock || i == 0 ? runClock : newClock());
+        }
+        Dispatcher dispatcher = new Dispatcher(config.dispatch, stations, random.nextLong());
+        // opened and started before anything runs, so a missing trace or a port in use
+        // leaves no pumps or endpoint behind
+        Workload[] workloads = new Workload[sharedClock ? 1 : stations.length];
+        try {
+            for (int i = 0; i < workloads.length; i++) {
+                workloads[i] = openWorkload(config, stations.length, seed);
+            }
+            MetricsExporter metrics;
+            try {
+                metrics = MetricsExporter.start(stations, config);
+            } catch (IOException e) {
+                System.out.println("Cannot start metrics endpoint: " + e.getMessage());
+                return null;
+            }
+            try {
+                runStations(config, threadMode, stations, dispatcher, workloads, metrics);
+            } finally {
+                if (metrics != null) metrics.close();
+            }
+        } finally {
+            for (Workload workload : workloads) {
+                if (workload != null) workload.close();
+            }
+        }
+        return stations;
+    }
 
-        for (int i = 0; i < numPumps; i++) {
-            Pump pump = new Pump(i + 1);
-            Thread pumpThread = new Thread(pump, "Pump-" + (i + 1));
-            pumpThread.setDaemon(true);
-            pumpThread.start();
+    /** A fresh clock for a station: simulated time when headless, so sleeps and services cost no wall-clock time. */
+    private static SimClock newClock() {
+        return headless ? new VirtualClock() : new RealClock();
+    }
+
+    /**
+     * Starts the stations, feeds them the workloads' cars and waits until the last one
+     * has left. One workload feeds every station through the dispatcher; one per
+     * station means round-robin shards that each feed themselves.
+     */
+    private static void runStations(StationConfig config, ThreadMode threadMode, ServiceStation[] stations,
+                                    Dispatcher dispatcher, Workload[] workloads, MetricsExporter metrics) throws IOException {
+        if (!headless) {
+            SwingUtilities.invokeLater(() -> {
+                guiModel = new CarWashModel(config.numPumps);
+                gui = new CarWashGUI(guiModel, null, config.waitingCapacity);
+                log("GUI initialized.");
+            });
+
+            try { Thread.sleep(500); } catch (InterruptedException e) {}
+
+            if (config.progressHz > 0) {
+                progressReporter = new ProgressReporter(config.numPumps, config.progressHz, stations[0].clock);
+            }
+        }
+
+        for (ServiceStation station : stations) {
+            station.start(threadMode);
+        }
+
+        if (metrics != null && metrics.port() != 0) {
+            System.out.println("Metrics: http://localhost:" + metrics.port() + "/metrics");
+        }
+
+        long wallStart = System.nanoTime();
+        if (workloads.length == 1) {
+            feed(config, threadMode, stations, dispatcher, workloads[0], 0, 1);
+        } else {
+            feedShards(config, threadMode, stations, workloads);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(DRAIN_TIMEOUT_MINUTES);
+        try {
+            for (ServiceStation station : stations) {
+                if (!station.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    log("Timed out after " + DRAIN_TIMEOUT_MINUTES + " min with " + station.load()
+                            + " car(s) still in station " + (station.index + 1) + "; statistics cover the cars that left.");
+                }
+            }
+        } catch (InterruptedException e) {
+            log("Interrupted while waiting for the last cars to leave.");
+            Thread.currentThread().interrupt();
+        }
+
+        // the report goes straight to System.out, after everything logged so far
+        logPipeline.flush();
+
+        if (headless) {
+            long simNanos = 0;
+            for (ServiceStation station : stations) {
+                simNanos = Math.max(simNanos, station.elapsedNanos());
+            }
+            double simSeconds = simNanos / 1_000_000_000.0;
+            double wallSeconds = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+            System.out.println("\nSimulated " + carsServiced(stations) + " cars in " + String.format("%.1f", simSeconds)
+                    + " s of station time (" + String.format("%.2f", wallSeconds) + " s wall clock).");
         }
+    }
 
-        int carId = 1;
-        int n = 0;
+    /**
+     * Generates the arrivals on the stations' common clock and sends each car where the
+     * dispatcher says, then stops the stations from accepting more. Of the workload it
+     * only feeds every {@code shards}-th car, starting with car {@code shard + 1}; the
+     * gaps of the cars it skips still pass, so each car arrives at its usual time.
+     */
+    private static void feed(StationConfig config, ThreadMode threadMode, ServiceStation[] stations,
+                             Dispatcher dispatcher, Workload workload, int shard, int shards) throws IOException {
+        SimClock clock = stations[0].clock;
+        ExecutorService carPool = threadMode.newCarPool();
+        long n = 0;
+        long gapMillis = 0;
         try {
-            while (n < 20) {
-                n++;
-                String carName = "Car-" + carId++;
-                Car car = new Car(carName);
-                Thread carThread = new Thread(car, carName);
-                carThread.start();
-                
-                Thread.sleep((long) (Math.random() * 1000) + 500);
+            while (n < config.numCars && workload.next()) {
+                gapMillis += workload.gapMillis();
+                if (n++ % shards != shard) continue;
+                clock.sleep(gapMillis);
+                gapMillis = 0;
+                ServiceStation station = dispatcher.next();
+                Car car = station.cars.obtain(n, workload.serviceMillis(), workload.priority(), workload.serviceType());
+                station.arrived();
+                clock.register();
+                if (carPool != null) {
+                    carPool.execute(car);
+                } else {
+                    Thread carThread = threadMode.newThread(car, car.getCarName(), false);
+                    carThread.start();
+                }
             }
         } catch (InterruptedException e) {
             log("Car generation interrupted. Shutting down.");
             Thread.currentThread().interrupt();
+        } finally {
+            for (ServiceStation station : stations) {
+                station.stopAccepting();
+            }
+            if (carPool != null) carPool.shutdown();
+            // the feeder stops counting as a participant, so the virtual clock runs on without it
+            clock.deregister();
+        }
+    }
+
+    /**
+     * Feeds round-robin shards in parallel: every station replays the whole workload
+     * on its own clock and takes every n-th car, exactly the cars a round-robin
+     * dispatcher would have sent it, so the shards share no lock on the way.
+     */
+    private static void feedShards(StationConfig config, ThreadMode threadMode, ServiceStation[] stations,
+                                   Workload[] workloads) throws IOException {
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Thread[] feeders = new Thread[stations.length];
+        for (int i = 0; i < stations.length; i++) {
+            int shard = i;
+            ServiceStation[] own = {stations[i]};
+            Dispatcher self = new Dispatcher(Dispatcher.Policy.ROUND_ROBIN, own, 0);
+            feeders[i] = threadMode.newThread(() -> {
+                try {
+                    feed(config, threadMode, own, self, workloads[shard], shard, stations.length);
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, stations[i].name + "-Arrivals", false);
+            feeders[i].start();
         }
-        
         try {
-            Thread.sleep(10000);
+            for (Thread feeder : feeders) {
+                feeder.join();
+            }
         } catch (InterruptedException e) {
+            log("Car generation interrupted. Shutting down.");
+            for (Thread feeder : feeders) {
+                feeder.interrupt();
+            }
             Thread.currentThread().interrupt();
         }
-        
-        printEfficiencyAnalysis();
-        
-        scanner.close();
+        if (failure.get() != null) throw failure.get();
+    }
+
+    /** Why the configured bays cannot serve this run, or null if they can. */
+    private static String bayConflict(StationConfig config) {
+        if (config.scheduler != PumpScheduler.FIFO || config.compareSchedulers) {
+            return "--bays routes cars to a bay on arrival; it only works with the fifo scheduler.";
+        }
+        BayRouter router = new BayRouter(config.bays, config.batchSize, config.batchSetupMillis, config.batchCarMillis);
+        for (ServiceType type : ServiceType.values()) {
+            if (config.mayArrive(type) && !router.offers(type)) {
+                return "No bay offers " + type.label + " service" + (config.tracePath != null
+                        ? ", which the trace may contain." : ".");
+            }
+        }
+        return null;
+    }
+
+    /** Why the event engine cannot run this configuration, or null if it can. */
+    private static String eventEngineConflict(StationConfig config) {
+        if (!config.headless) return "--engine=events needs --headless: it has no GUI.";
+        if (config.stations > 1) return "--engine=events models a single station.";
+        if (config.scheduler != PumpScheduler.FIFO) return "--engine=events only models the fifo scheduler.";
+        if (config.balk || config.patienceMillis >= 0 || config.tokenRate > 0) {
+            return "--engine=events does not model --balk, --patience-ms or --token-rate.";
+        }
+        if (config.batchSize > 1 || config.batchSetupMillis > 0 || config.batchCarMillis >= 0
+                || config.compareBatches != null) {
+            return "--engine=events does not model batched service.";
+        }
+        if (config.bays != null || config.serviceMix != null) {
+            return "--engine=events does not model --bays or --service-mix.";
+        }
+        if (config.compareSchedulers || config.journalDir != null || config.profilePath != null
+                || config.jmx || config.metricsPort != 0) {
+            return "--engine=events cannot be combined with --compare-schedulers, --journal, --profile, --jmx"
+                    + " or --metrics-port.";
+        }
+        return null;
+    }
+
+    /** Runs the station on the single-threaded discrete-event engine and prints the usual analysis. */
+    private static void runEvents(StationConfig config, long seed) {
+        log("\n--- Car Wash Simulation Starting ---");
+        log("Waiting Area: " + config.waitingCapacity);
+        log("Service Bays: " + config.numPumps);
+        log("Mode: discrete events, Cars: " + config.numCars);
+        log(config.tracePath != null ? "Arrivals: trace " + config.tracePath
+                : "Arrivals: " + config.workload.label() + (config.workload == WorkloadGenerator.Kind.UNIFORM ? ""
+                        : " at " + config.arrivalRate + " cars/s"));
+        log("------------------------------------\n");
+        logPipeline.flush();
+
+        EventSimulation simulation;
+        long simNanos;
+        long wallStart = System.nanoTime();
+        try (Workload workload = openWorkload(config, 1, seed)) {
+            simulation = new EventSimulation(config, workload);
+            simNanos = simulation.run();
+        } catch (IOException e) {
+            System.out.println("Cannot read trace: " + e.getMessage());
+            return;
+        }
+        double wallSeconds = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+        System.out.println("\nSimulated " + simulation.carsServiced() + " cars in "
+                + String.format("%.1f", simNanos / 1_000_000_000.0) + " s of station time ("
+                + String.format("%.2f", wallSeconds) + " s wall clock, "
+                + String.format("%.1f", simulation.eventCount() / wallSeconds / 1_000_000) + " M events/s).");
+        printEfficiencyAnalysis(simulation.stats);
+    }
+
+    /**
+     * The arrivals of a run: a recorded trace, replayed as is, or a generator whose
+     * rate is multiplied by the station count so each station sees the configured load.
+     */
+    private static Workload openWorkload(StationConfig config, int stations, long seed) throws IOException {
+        if (config.tracePath != null) return TraceFile.open(Path.of(config.tracePath));
+        WorkloadGenerator generator = new WorkloadGenerator(config.workload, config.arrivalRate, config.fleetPercent,
+                stations, seed);
+        if (config.serviceMix != null) generator.setServiceMix(config.serviceMix);
+        return generator;
+    }
+
+    private static void writeTrace(StationConfig config, long seed) {
+        long count = config.numCars < 0 ? 20 : config.numCars;
+        Path path = Path.of(config.writeTracePath);
+        WorkloadGenerator workload = new WorkloadGenerator(config.workload, config.arrivalRate, config.fleetPercent,
+                config.stations, seed);
+        if (config.serviceMix != null) workload.setServiceMix(config.serviceMix);
+        long start = System.nanoTime();
+        try {
+            TraceFile.write(path, workload, count, seed);
+        } catch (IOException e) {
+            System.out.println("Cannot write trace: " + e.getMessage());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long bytes = TraceFile.HEADER_BYTES + count * TraceFile.RECORD_BYTES;
+        System.out.println("Wrote " + count + " " + config.workload.label() + " arrivals (seed " + seed + ") to "
+                + path + ": " + String.format("%.1f", bytes / 1_048_576.0) + " MB in "
+                + String.format("%.2f", seconds) + " s.");
+    }
+
+    /** Replays the same seeded arrival trace under every scheduler and tabulates the waits. */
+    private static void compareSchedulers(StationConfig config, ThreadMode threadMode, long seed) throws IOException {
+        PumpScheduler[] schedulers = PumpScheduler.values();
+        StationStats[] results = new StationStats[schedulers.length];
+        for (int i = 0; i < schedulers.length; i++) {
+            config.scheduler = schedulers[i];
+            ServiceStation[] stations = simulate(config, threadMode, seed);
+            if (stations == null) return;
+            StationStats total = new StationStats(config.numPumps);
+            for (ServiceStation station : stations) {
+                total.add(station.stats);
+            }
+            results[i] = total;
+        }
+
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("Scheduler Comparison (seed " + seed + ", " + config.numCars + " cars, "
+                + config.fleetPercent + "% fleet, aging " + config.agingMillis + " ms)");
+        System.out.println("=".repeat(80));
+        System.out.println(String.format("%-15s %10s %10s %10s %10s %10s %12s %12s",
+                "Wait (ms)", "mean", "p50", "p90", "p99", "max", "fleet p99", "walk-in p99"));
+        for (int i = 0; i < schedulers.length; i++) {
+            LatencyHistogram.Snapshot wait = results[i].latency.snapshot(LatencyMetrics.Phase.WAIT);
+            LatencyHistogram.Snapshot fleet = results[i].waitByPriority(Car.Priority.FLEET).snapshot();
+            LatencyHistogram.Snapshot walkIn = results[i].waitByPriority(Car.Priority.WALK_IN).snapshot();
+            System.out.println(String.format("%-15s %10.2f %10.2f %10.2f %10.2f %10.2f %12.2f %12.2f",
+                    schedulers[i].label(), wait.mean() / 1_000_000.0, wait.percentile(50) / 1_000_000.0,
+                    wait.percentile(90) / 1_000_000.0, wait.percentile(99) / 1_000_000.0, wait.max() / 1_000_000.0,
+                    fleet.percentile(99) / 1_000_000.0, walkIn.percentile(99) / 1_000_000.0));
+        }
+        System.out.println("=".repeat(80) + "\n");
+    }
+
+    /**
+     * Replays the same seeded arrival trace with every batch size and tabulates what
+     * batching buys in throughput and synchronization against what it costs in latency.
+     */
+    private static void compareBatches(StationConfig config, ThreadMode threadMode, long seed) throws IOException {
+        int[] sizes = config.compareBatches;
+        StationStats[] results = new StationStats[sizes.length];
+        double[] stationSeconds = new double[sizes.length];
+        double[] wallSeconds = new double[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            config.batchSize = sizes[i];
+            StationStats total = new StationStats(config.numPumps);
+            long wallStart = System.nanoTime();
+            long elapsed = 0;
+            ServiceStation[] stations = simulate(config, threadMode, seed);
+            if (stations == null) return;
+            for (ServiceStation station : stations) {
+                total.add(station.stats);
+                elapsed = Math.max(elapsed, station.elapsedNanos());
+            }
+            wallSeconds[i] = (System.nanoTime() - wallStart) / 1_000_000_000.0;
+            stationSeconds[i] = elapsed / 1_000_000_000.0;
+            results[i] = total;
+        }
+
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("Batch Comparison (seed " + seed + ", " + config.numCars + " cars, setup "
+                + config.batchSetupMillis + " ms, per car "
+                + (config.batchCarMillis >= 0 ? config.batchCarMillis + " ms" : "its service time") + ")");
+        System.out.println("=".repeat(80));
+        System.out.println(String.format("%-6s %9s %10s %9s %10s %10s %10s %10s",
+                "Batch", "cars/s", "sem ops", "wall (s)", "wait mean", "wait p99", "e2e mean", "e2e p99"));
+        for (int i = 0; i < sizes.length; i++) {
+            long cars = results[i].carsServiced.sum();
+            LatencyHistogram.Snapshot wait = results[i].latency.snapshot(LatencyMetrics.Phase.WAIT);
+            LatencyHistogram.Snapshot e2e = results[i].latency.snapshot(LatencyMetrics.Phase.END_TO_END);
+            System.out.println(String.format("%-6d %9.3f %10.2f %9.2f %10.2f %10.2f %10.2f %10.2f", sizes[i],
+                    stationSeconds[i] > 0 ? cars / stationSeconds[i] : 0,
+                    cars > 0 ? (double) results[i].semaphoreWaitCount() / cars : 0, wallSeconds[i],
+                    wait.mean() / 1_000_000.0, wait.percentile(99) / 1_000_000.0,
+                    e2e.mean() / 1_000_000.0, e2e.percentile(99) / 1_000_000.0));
+        }
+        System.out.println("Throughput is in station time; sem ops are semaphore acquires per car serviced.");
+        System.out.println("=".repeat(80) + "\n");
+    }
+
+    private static long carsServiced(ServiceStation[] stations) {
+        long sum = 0;
+        for (ServiceStation station : stations) {
+            sum += station.stats.carsServiced.sum();
+        }
+        return sum;
+    }
+
+    private static LogPipeline createLogPipeline(StationConfig config) throws IOException {
+        List<LogPipeline.Sink> sinks = new ArrayList<>();
+        if (!config.quiet) sinks.add(LogPipeline.consoleSink());
+        if (config.logFile != null) sinks.add(LogPipeline.fileSink(Path.of(config.logFile)));
+        if (!config.headless) sinks.add(ServiceStation::logToGUI);
+        if (config.asyncLog) {
+            return LogPipeline.asynchronous(sinks, config.logBuffer, config.logPolicy);
+        }
+        return LogPipeline.synchronous(sinks);
     }
     
-    private static void printEfficiencyAnalysis() {
+    private static void printStationSummary(ServiceStation[] stations) {
+        System.out.println("\n" + "=".repeat(80));
+        System.out.println("Per-Station Summary");
+        System.out.println("=".repeat(80));
+        System.out.println(String.format("%-8s %10s %12s %12s %12s %12s",
+                "Station", "cars", "queue mean", "e2e mean", "e2e p99", "efficiency"));
+        for (ServiceStation station : stations) {
+            StationStats stats = station.stats;
+            LatencyHistogram.Snapshot queued = stats.latency.snapshot(LatencyMetrics.Phase.QUEUE_TO_PUMP);
+            LatencyHistogram.Snapshot e2e = stats.latency.snapshot(LatencyMetrics.Phase.END_TO_END);
+            double waitMs = stats.totalWaitNanos() / 1_000_000.0;
+            double workMs = stats.totalWorkNanos() / 1_000_000.0;
+            double efficiency = waitMs + workMs > 0 ? workMs / (waitMs + workMs) : 0;
+            System.out.println(String.format("%-8s %10d %12.2f %12.2f %12.2f %12.4f",
+                    station.name, stats.carsServiced.sum(), queued.mean() / 1_000_000.0,
+                    e2e.mean() / 1_000_000.0, e2e.percentile(99) / 1_000_000.0, efficiency));
+        }
+    }
+
+    private static String bayLabels(BayRouter.BaySpec[] bays) {
+        StringBuilder sb = new StringBuilder();
+        for (BayRouter.BaySpec bay : bays) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(bay.label()).append('@').append(bay.speed);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Throughput, waits and bay time per service type, and with routed bays the
+     * work of each bay. Utilization is bay time over the time all bays were open;
+     * a batch's setup counts for its bay but for no service type.
+     */
+    private static void printServiceTypes(StationConfig config, ServiceStation[] stations, StationStats total) {
+        long elapsed = 0;
+        for (ServiceStation station : stations) {
+            elapsed = Math.max(elapsed, station.elapsedNanos());
+        }
+        double seconds = elapsed / 1_000_000_000.0;
+        double capacityNanos = (double) elapsed * config.numPumps * stations.length;
+
+        System.out.println("=".repeat(80));
+        System.out.println("Service Types");
+        System.out.println("=".repeat(80));
+        System.out.println(String.format("%-8s %10s %9s %12s %12s %14s %8s",
+                "Type", "cars", "cars/s", "wait mean", "wait p99", "busy (ms)", "util"));
+        for (ServiceType type : ServiceType.values()) {
+            StationStats.TypeCounters counters = total.type(type);
+            long cars = counters.carsServiced.sum();
+            if (cars == 0) continue;
+            LatencyHistogram.Snapshot wait = counters.wait.snapshot();
+            long busy = counters.busyNanos.sum();
+            System.out.println(String.format("%-8s %10d %9.3f %12.2f %12.2f %14.2f %7.2f%%", type.label, cars,
+                    seconds > 0 ? cars / seconds : 0, wait.mean() / 1_000_000.0, wait.percentile(99) / 1_000_000.0,
+                    busy / 1_000_000.0, capacityNanos > 0 ? 100 * busy / capacityNanos : 0));
+        }
+        if (config.bays != null) {
+            System.out.println(String.format("%n%-8s %-22s %6s %10s %14s %8s",
+                    "Bay", "types", "speed", "cars", "busy (ms)", "util"));
+            for (int i = 0; i < config.bays.length; i++) {
+                StationStats.PumpCounters bay = total.pump(i + 1);
+                long busy = bay.busyNanos.sum();
+                System.out.println(String.format("%-8d %-22s %6.2f %10d %14.2f %7.2f%%", i + 1, config.bays[i].label(),
+                        config.bays[i].speed, bay.carsServiced.sum(), busy / 1_000_000.0,
+                        elapsed > 0 ? 100.0 * busy / ((double) elapsed * stations.length) : 0));
+            }
+        }
+        System.out.println("Throughput and utilization are in station time.");
+        System.out.println("=".repeat(80) + "\n");
+    }
+
+    private static void printEfficiencyAnalysis(StationStats stats) {
         System.out.println("\n" + "=".repeat(80));
         System.out.println("Computational Efficiency Analysis");
         System.out.println("=".repeat(80));
         
-        long totalWaitNs = totalWaitTime.get();
-        long totalWorkNs = totalWorkTime.get();
-        long waitCount = semaphoreWaitCount.get();
+        long totalWaitNs = stats.totalWaitNanos();
+        long totalWorkNs = stats.totalWorkNanos();
+        long waitCount = stats.semaphoreWaitCount();
         
         double totalWaitMs = totalWaitNs / 1_000_000.0;
         double totalWorkMs = totalWorkNs / 1_000_000.0;
@@ -165,6 +989,16 @@ public class ServiceStation {
         System.out.println("Total time spent doing actual work: " + String.format("%.2f", totalWorkMs) + " ms");
         System.out.println("Total execution time: " + String.format("%.2f", totalTimeMs) + " ms");
         System.out.println("Number of semaphore wait operations: " + waitCount);
+        System.out.println("Cars serviced: " + stats.carsServiced.sum());
+        long turnedAway = stats.carsBalked.sum() + stats.carsRejected.sum() + stats.carsReneged.sum();
+        if (turnedAway > 0) {
+            System.out.println("Cars left unserviced: " + turnedAway + " (balked " + stats.carsBalked.sum()
+                    + ", rejected by the token bucket " + stats.carsRejected.sum()
+                    + ", reneged " + stats.carsReneged.sum() + ")");
+        }
+        if (logPipeline.droppedCount() > 0) {
+            System.out.println("Log messages dropped: " + logPipeline.droppedCount());
+        }
         
         if (waitCount > 0) {
             double avgWaitMs = totalWaitMs / waitCount;
@@ -182,6 +1016,12 @@ public class ServiceStation {
             System.out.println("  Efficiency ratio: " + String.format("%.4f", efficiency));
         }
         
+        System.out.println("\nContention:");
+        System.out.print(stats.report());
+
+        System.out.println("\nCar Latency:");
+        System.out.print(stats.latency.report());
+
         System.out.println("\nSYNCHRONIZATION EFFECTS:");
         System.out.println("- Synchronization introduces overhead through context switching and blocking");
         System.out.println("- Wait time represents threads blocked on semaphores (mutex, empty, full, pumps)");
@@ -192,188 +1032,3 @@ public class ServiceStation {
         System.out.println("=".repeat(80) + "\n");
     }
 }
-
-class Semaphore {
-    private int value;
-
-    public Semaphore(int value) {
-        if (value < 0) throw new IllegalArgumentException("Semaphore value must be non-negative.");
-        this.value = value;
-    }
-
-    public synchronized void waitSemaphore() {
-        long startWait = System.nanoTime();
-        while (value <= 0) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.out.println("Thread interrupted during waitSemaphore.");
-            }
-        }
-        long waitDuration = System.nanoTime() - startWait;
-        ServiceStation.totalWaitTime.addAndGet(waitDuration);
-        ServiceStation.semaphoreWaitCount.incrementAndGet();
-        value--;
-    }
-
-    public synchronized void signalSemaphore() {
-        value++;
-        notifyAll();
-    }
-
-    public synchronized int getValue() {
-        return value;
-    }
-}
-
-class Car implements Runnable {
-    private final String carName;
-    private final Semaphore serviced = new Semaphore(0);
-    private long arrivalTime;
-    private long serviceStartTime;
-    private long departureTime;
-
-    public Car(String name) {
-        this.carName = name;
-    }
-
-    public String getCarName() {
-        return carName;
-    }
-
-    public void serviceCompleted() {
-        serviced.signalSemaphore();
-    }
-
-    public void recordArrival() {
-        this.arrivalTime = System.currentTimeMillis();
-    }
-
-    public void recordServiceStart() {
-        this.serviceStartTime = System.currentTimeMillis();
-    }
-
-    public void recordDeparture() {
-        this.departureTime = System.currentTimeMillis();
-    }
-
-    public long getWaitingTime() {
-        if (serviceStartTime == 0 || arrivalTime == 0) return 0;
-        return serviceStartTime - arrivalTime;
-    }
-
-    public long getServiceTime() {
-        if (departureTime == 0 || serviceStartTime == 0) return 0;
-        return departureTime - serviceStartTime;
-    }
-
-    public long getTotalTime() {
-        if (departureTime == 0 || arrivalTime == 0) return 0;
-        return departureTime - arrivalTime;
-    }
-
-    @Override
-    public void run() {
-        try {
-            long workStart = System.nanoTime();
-            recordArrival();
-            ServiceStation.log(carName + " arrived.");
-
-            ServiceStation.empty.waitSemaphore();
-
-            ServiceStation.mutex.waitSemaphore();
-            try {
-                ServiceStation.waitingQueue.offer(this);
-                ServiceStation.log(carName + " entered waiting area (Queue: " + ServiceStation.waitingQueue.size() + ")");
-                ServiceStation.syncQueueToGUI();
-            } finally {
-                ServiceStation.mutex.signalSemaphore();
-            }
-
-            ServiceStation.full.signalSemaphore();
-
-            ServiceStation.log(carName + " is waiting for service.");
-            serviced.waitSemaphore();
-
-            recordDeparture();
-            ServiceStation.log(carName + " service completed, leaving. (Wait: " +
-                    getWaitingTime() + "ms, Service: " + getServiceTime() + "ms, Total: " + getTotalTime() + "ms)");
-            
-            long workDuration = System.nanoTime() - workStart;
-            ServiceStation.totalWorkTime.addAndGet(workDuration);
-
-        } catch (Exception e) {
-            ServiceStation.log(carName + " encountered an error: " + e.getMessage());
-        }
-    }
-}
-
-class Pump implements Runnable {
-    private final int pumpId;
-
-    public Pump(int id) {
-        this.pumpId = id;
-    }
-
-    @Override
-    public void run() {
-        ServiceStation.log("Pump " + pumpId + " is operational.");
-        while (true) {
-            try {
-                ServiceStation.full.waitSemaphore();
-
-                Car car;
-                ServiceStation.mutex.waitSemaphore();
-                try {
-                    car = ServiceStation.waitingQueue.poll();
-                } finally {
-                    ServiceStation.mutex.signalSemaphore();
-                }
-
-                ServiceStation.empty.signalSemaphore();
-
-                if (car != null) {
-                    ServiceStation.pumps.waitSemaphore();
-
-                    car.recordServiceStart();
-                    ServiceStation.log("Pump " + pumpId + ": " + car.getCarName() + " begins service.");
-                    
-                    ServiceStation.updatePumpState(pumpId, car.getCarName(), 0);
-                    ServiceStation.syncQueueToGUI();
-
-                    long serviceDuration = (long) (Math.random() * 2000) + 1000;
-                    long workStart = System.nanoTime();
-                    long startTime = System.currentTimeMillis();
-                    long endTime = startTime + serviceDuration;
-                    
-                    while (System.currentTimeMillis() < endTime) {
-                        long elapsed = System.currentTimeMillis() - startTime;
-                        int progress = (int) ((elapsed * 100) / serviceDuration);
-                        if (progress > 100) progress = 100;
-                        ServiceStation.updatePumpState(pumpId, car.getCarName(), progress);
-                        Thread.sleep(100);
-                    }
-                    
-                    ServiceStation.updatePumpState(pumpId, car.getCarName(), 100);
-
-                    ServiceStation.log("Pump " + pumpId + ": " + car.getCarName() + " finishes service.");
-                    car.serviceCompleted();
-
-                    ServiceStation.log("Pump " + pumpId + ": Bay is now free.");
-                    ServiceStation.pumps.signalSemaphore();
-                    
-                    ServiceStation.updatePumpState(pumpId, null, 0);
-                    
-                    long workDuration = System.nanoTime() - workStart;
-                    ServiceStation.totalWorkTime.addAndGet(workDuration);
-                }
-
-            } catch (InterruptedException e) {
-                ServiceStation.log("Pump " + pumpId + " interrupted.");
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
-    }
-}
\ No newline at end of file
@@ -0,0 +1,40 @@
+import java.util.SplittableRandom;
+
+/**
+ * What a car comes in for. Each type has its own service-time distribution, given
+ * for a bay of speed 1; a bay of speed 2 takes half as long.
+ */
+enum ServiceType {
+    /** The original service: uniform in 1000-3000 ms. */
+    BASIC("basic"),
+    /** Uniform in 500-1500 ms. */
+    EXPRESS("express"),
+    /** At least 2000 ms plus an exponential tail with a mean of 4000 ms. */
+    DETAIL("detail");
+
+    private static final ServiceType[] VALUES = values();
+
+    final String label;
+
+    ServiceType(String label) {
+        this.label = label;
+    }
+
+    long drawServiceMillis(SplittableRandom random) {
+        switch (this) {
+            case EXPRESS:
+                return (long) (random.nextDouble() * 1000) + 500;
+            case DETAIL:
+                return 2000 + Math.round(-Math.log(1 - random.nextDouble()) * 4000);
+            default:
+                return (long) (random.nextDouble() * 2000) + 1000;
+        }
+    }
+
+    static ServiceType parse(String value) {
+        for (ServiceType type : VALUES) {
+            if (type.label.equals(value)) return type;
+        }
+        throw new IllegalArgumentException("Invalid service type: " + value + " (expected basic, express or detail)");
+    }
+}
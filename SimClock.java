@@ -0,0 +1,18 @@
+/**
+ * Source of time for the simulation. Real-time runs use the wall clock; headless
+ * runs use a {@link VirtualClock} so that sleeps advance simulated time instead of
+ * blocking the thread for real.
+ */
+interface SimClock {
+    long nanoTime();
+
+    long currentTimeMillis();
+
+    void sleep(long millis) throws InterruptedException;
+
+    // Participant bookkeeping: a thread that takes part in the simulation must be
+    // registered before it starts and deregistered when it finishes.
+    default void register() {}
+
+    default void deregister() {}
+}
@@ -0,0 +1,306 @@
+/**
+ * Run options for the station, read from command-line flags. Capacity and pump
+ * count fall back to the interactive prompts when they are not given.
+ */
+class StationConfig {
+    int waitingCapacity = -1;
+    int numPumps = -1;
+    // -1: 20 cars, or the whole trace when replaying one
+    long numCars = -1;
+    boolean headless = false;
+    boolean quiet = false;
+    Long seed = null;
+    // null: platform threads with the GUI, pooled threads when headless
+    ThreadMode threadMode = null;
+    String waitingArea = "ring";
+    boolean asyncLog = true;
+    LogPipeline.Policy logPolicy = LogPipeline.Policy.BLOCK;
+    int logBuffer = 8192;
+    String logFile = null;
+    int progressHz = 10;
+    int stations = 1;
+    Dispatcher.Policy dispatch = Dispatcher.Policy.ROUND_ROBIN;
+    PumpScheduler scheduler = PumpScheduler.FIFO;
+    long agingMillis = 3000;
+    int fleetPercent = 20;
+    boolean compareSchedulers = false;
+    WorkloadGenerator.Kind workload = WorkloadGenerator.Kind.UNIFORM;
+    double arrivalRate = 1.0;
+    String tracePath = null;
+    String writeTracePath = null;
+    String journalDir = null;
+    int journalSegmentMb = 64;
+    boolean jmx = false;
+    // 0: no HTTP endpoint
+    int metricsPort = 0;
+    String profilePath = null;
+    int profileEvents = 1_000_000;
+    String engine = "threads";
+    boolean balk = false;
+    // -1: cars wait as long as it takes
+    long patienceMillis = -1;
+    // 0: no token bucket at the entrance
+    double tokenRate = 0;
+    int tokenBurst = 1;
+    // longest a car queues for its token; -1: the time the bucket takes to refill a burst
+    long tokenMaxWaitMillis = -1;
+    int batchSize = 1;
+    long batchSetupMillis = 0;
+    // -1: each car takes its own service time
+    long batchCarMillis = -1;
+    // null: no batch size comparison
+    int[] compareBatches = null;
+    // null: identical pumps taking cars from the shared waiting area
+    BayRouter.BaySpec[] bays = null;
+    // null: every car is BASIC; otherwise percent of cars per ServiceType ordinal
+    int[] serviceMix = null;
+
+    static String usage() {
+        return "Usage: java ServiceStation [--headless] [--quiet] [--capacity=N] [--pumps=N] [--cars=N] [--seed=N]"
+                + " [--threads=platform|pooled|virtual] [--waiting-area=ring|locked]"
+                + " [--log=async|sync] [--log-policy=block|drop] [--log-buffer=N] [--log-file=PATH]"
+                + " [--progress-hz=N] [--stations=N] [--dispatch=round-robin|shortest-queue|power-of-two]"
+                + " [--scheduler=fifo|shortest-first|priority|stealing] [--aging-ms=N] [--fleet-percent=N]"
+                + " [--compare-schedulers] [--workload=uniform|poisson|mmpp|diurnal] [--arrival-rate=CARS_PER_S]"
+                + " [--trace=PATH] [--write-trace=PATH] [--journal=DIR] [--journal-segment-mb=N]"
+                + " [--jmx] [--metrics-port=N] [--profile=PATH] [--profile-events=N]"
+                + " [--engine=threads|events] [--balk] [--patience-ms=N] [--token-rate=CARS_PER_S] [--token-burst=N]"
+                + " [--token-max-wait-ms=N]"
+                + " [--batch=N] [--batch-setup-ms=N] [--batch-car-ms=N] [--compare-batches=N,N,...]"
+                + " [--bays=TYPE+TYPE@SPEED,...] [--service-mix=TYPE:PERCENT,...]";
+    }
+
+    static StationConfig parse(String[] args) {
+        StationConfig config = new StationConfig();
+        for (String arg : args) {
+            String name = arg;
+            String value = null;
+            int eq = arg.indexOf('=');
+            if (eq >= 0) {
+                name = arg.substring(0, eq);
+                value = arg.substring(eq + 1);
+            }
+            switch (name) {
+                case "--headless":
+                    config.headless = true;
+                    break;
+                case "--quiet":
+                    config.quiet = true;
+                    break;
+                case "--capacity":
+                    config.waitingCapacity = (int) positive(name, value);
+                    break;
+                case "--pumps":
+                    config.numPumps = (int) positive(name, value);
+                    break;
+                case "--cars":
+                    config.numCars = positive(name, value);
+                    break;
+                case "--seed":
+                    config.seed = number(name, value);
+                    break;
+                case "--threads":
+                    if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+                    config.threadMode = ThreadMode.parse(value);
+                    break;
+                case "--waiting-area":
+                    if (!"ring".equals(value) && !"locked".equals(value)) {
+                        throw new IllegalArgumentException("Invalid waiting area: " + value + " (expected ring or locked)");
+                    }
+                    config.waitingArea = value;
+                    break;
+                case "--log":
+                    if (!"async".equals(value) && !"sync".equals(value)) {
+                        throw new IllegalArgumentException("Invalid log mode: " + value + " (expected async or sync)");
+                    }
+                    config.asyncLog = "async".equals(value);
+                    break;
+                case "--log-policy":
+                    if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+                    config.logPolicy = LogPipeline.Policy.parse(value);
+                    break;
+                case "--log-buffer":
+                    config.logBuffer = (int) positive(name, value);
+                    break;
+                case "--progress-hz":
+                    config.progressHz = (int) number(name, value);
+                    if (config.progressHz < 0) throw new IllegalArgumentException(name + " must not be negative.");
+                    break;
+                case "--stations":
+                    config.stations = (int) positive(name, value);
+                    break;
+                case "--dispatch":
+                    if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+                    config.dispatch = Dispatcher.Policy.parse(value);
+                    break;
+                case "--scheduler":
+                    if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+                    config.scheduler = PumpScheduler.parse(value);
+                    break;
+                case "--aging-ms":
+                    config.agingMillis = number(name, value);
+                    if (config.agingMillis < 0) throw new IllegalArgumentException(name + " must not be negative.");
+                    break;
+                case "--fleet-percent":
+                    config.fleetPercent = (int) number(name, value);
+                    if (config.fleetPercent < 0 || config.fleetPercent > 100) {
+                        throw new IllegalArgumentException(name + " must be between 0 and 100.");
+                    }
+                    break;
+                case "--compare-schedulers":
+                    config.compareSchedulers = true;
+                    break;
+                case "--workload":
+                    if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+                    config.workload = WorkloadGenerator.Kind.parse(value);
+                    break;
+                case "--arrival-rate":
+                    config.arrivalRate = decimal(name, value);
+                    if (!(config.arrivalRate > 0)) throw new IllegalArgumentException(name + " must be positive.");
+                    break;
+                case "--trace":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.tracePath = value;
+                    break;
+                case "--write-trace":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.writeTracePath = value;
+                    break;
+                case "--journal":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.journalDir = value;
+                    break;
+                case "--journal-segment-mb":
+                    config.journalSegmentMb = (int) positive(name, value);
+                    if (config.journalSegmentMb > 1024) throw new IllegalArgumentException(name + " must be at most 1024.");
+                    break;
+                case "--jmx":
+                    config.jmx = true;
+                    break;
+                case "--metrics-port":
+                    config.metricsPort = (int) positive(name, value);
+                    if (config.metricsPort > 65535) throw new IllegalArgumentException(name + " must be at most 65535.");
+                    break;
+                case "--profile":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.profilePath = value;
+                    break;
+                case "--profile-events":
+                    config.profileEvents = (int) positive(name, value);
+                    break;
+                case "--engine":
+                    if (!"threads".equals(value) && !"events".equals(value)) {
+                        throw new IllegalArgumentException("Invalid engine: " + value + " (expected threads or events)");
+                    }
+                    config.engine = value;
+                    break;
+                case "--balk":
+                    config.balk = true;
+                    break;
+                case "--patience-ms":
+                    config.patienceMillis = number(name, value);
+                    if (config.patienceMillis < 0) throw new IllegalArgumentException(name + " must not be negative.");
+                    break;
+                case "--token-rate":
+                    config.tokenRate = decimal(name, value);
+                    if (!(config.tokenRate > 0)) throw new IllegalArgumentException(name + " must be positive.");
+                    break;
+                case "--token-burst":
+                    config.tokenBurst = (int) positive(name, value);
+                    break;
+                case "--token-max-wait-ms":
+                    config.tokenMaxWaitMillis = number(name, value);
+                    if (config.tokenMaxWaitMillis < 0) throw new IllegalArgumentException(name + " must not be negative.");
+                    break;
+                case "--batch":
+                    config.batchSize = (int) positive(name, value);
+                    break;
+                case "--batch-setup-ms":
+                    config.batchSetupMillis = number(name, value);
+                    if (config.batchSetupMillis < 0) throw new IllegalArgumentException(name + " must not be negative.");
+                    break;
+                case "--batch-car-ms":
+                    config.batchCarMillis = number(name, value);
+                    if (config.batchCarMillis < 0) throw new IllegalArgumentException(name + " must not be negative.");
+                    break;
+                case "--compare-batches":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    String[] sizes = value.split(",");
+                    config.compareBatches = new int[sizes.length];
+                    for (int i = 0; i < sizes.length; i++) {
+                        config.compareBatches[i] = (int) positive(name, sizes[i].trim());
+                    }
+                    break;
+                case "--bays":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.bays = BayRouter.BaySpec.parseAll(value);
+                    break;
+                case "--service-mix":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.serviceMix = serviceMix(value);
+                    break;
+                case "--log-file":
+                    if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " requires a value.");
+                    config.logFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (config.bays != null) {
+            if (config.numPumps > 0 && config.numPumps != config.bays.length) {
+                throw new IllegalArgumentException("--pumps must match the number of --bays when both are given.");
+            }
+            config.numPumps = config.bays.length;
+        }
+        return config;
+    }
+
+    /** Parses {@code --service-mix}, e.g. {@code basic:60,express:30,detail:10}; the shares must add up to 100. */
+    private static int[] serviceMix(String value) {
+        int[] percents = new int[ServiceType.values().length];
+        int total = 0;
+        for (String part : value.split(",")) {
+            int colon = part.indexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("Invalid service mix entry: " + part + " (expected TYPE:PERCENT)");
+            ServiceType type = ServiceType.parse(part.substring(0, colon).trim());
+            int percent = (int) number("--service-mix", part.substring(colon + 1).trim());
+            if (percent < 0) throw new IllegalArgumentException("--service-mix shares must not be negative.");
+            percents[type.ordinal()] += percent;
+            total += percent;
+        }
+        if (total != 100) throw new IllegalArgumentException("--service-mix shares must add up to 100, not " + total + ".");
+        return percents;
+    }
+
+    /** Service types that can arrive: those in the mix, all of them for a trace, otherwise only BASIC. */
+    boolean mayArrive(ServiceType type) {
+        if (tracePath != null) return true;
+        if (serviceMix == null) return type == ServiceType.BASIC;
+        return serviceMix[type.ordinal()] > 0;
+    }
+
+    private static long number(String name, String value) {
+        if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    private static double decimal(String name, String value) {
+        if (value == null) throw new IllegalArgumentException(name + " requires a value.");
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    private static long positive(String name, String value) {
+        long n = number(name, value);
+        if (n <= 0) throw new IllegalArgumentException(name + " must be positive (greater than 0).");
+        return n;
+    }
+}
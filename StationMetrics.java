@@ -0,0 +1,130 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** {@link StationMetricsMXBean} backed by a running station's counters. */
+class StationMetrics implements StationMetricsMXBean {
+    private final ServiceStation station;
+    private final String label;
+
+    StationMetrics(ServiceStation station) {
+        this.station = station;
+        this.label = String.valueOf(station.index + 1);
+    }
+
+    /** Station number (from 1), used as the JMX name and the Prometheus label. */
+    String label() {
+        return label;
+    }
+
+    ServiceStation station() {
+        return station;
+    }
+
+    @Override
+    public String getName() {
+        return label;
+    }
+
+    @Override
+    public long getCarsServiced() {
+        return station.stats.carsServiced.sum();
+    }
+
+    @Override
+    public long getCarsBalked() {
+        return station.stats.carsBalked.sum();
+    }
+
+    @Override
+    public long getCarsRejected() {
+        return station.stats.carsRejected.sum();
+    }
+
+    @Override
+    public long getCarsReneged() {
+        return station.stats.carsReneged.sum();
+    }
+
+    @Override
+    public String getState() {
+        return station.state().name();
+    }
+
+    @Override
+    public int getCarsInStation() {
+        return station.load();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return station.queuedCars();
+    }
+
+    @Override
+    public double getThroughputPerSecond() {
+        double seconds = station.elapsedNanos() / 1_000_000_000.0;
+        return seconds > 0 ? getCarsServiced() / seconds : 0;
+    }
+
+    @Override
+    public double[] getPumpUtilization() {
+        long elapsed = station.elapsedNanos();
+        double[] utilization = new double[station.numPumps];
+        for (int i = 0; i < utilization.length; i++) {
+            long busy = station.stats.pump(i + 1).busyNanos.sum();
+            utilization[i] = elapsed > 0 ? Math.min(1.0, (double) busy / elapsed) : 0;
+        }
+        return utilization;
+    }
+
+    @Override
+    public double getWaitP50Millis() {
+        return percentileMillis(LatencyMetrics.Phase.WAIT, 50);
+    }
+
+    @Override
+    public double getWaitP90Millis() {
+        return percentileMillis(LatencyMetrics.Phase.WAIT, 90);
+    }
+
+    @Override
+    public double getWaitP99Millis() {
+        return percentileMillis(LatencyMetrics.Phase.WAIT, 99);
+    }
+
+    @Override
+    public double getEndToEndP99Millis() {
+        return percentileMillis(LatencyMetrics.Phase.END_TO_END, 99);
+    }
+
+    private double percentileMillis(LatencyMetrics.Phase phase, double p) {
+        return station.stats.latency.snapshot(phase).percentile(p) / 1_000_000.0;
+    }
+
+    @Override
+    public Map<String, Long> getSemaphoreAcquires() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (StationStats.SemaphoreId id : StationStats.SemaphoreId.values()) {
+            values.put(id.label(), station.stats.semaphore(id).acquires.sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getSemaphoreBlocked() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (StationStats.SemaphoreId id : StationStats.SemaphoreId.values()) {
+            values.put(id.label(), station.stats.semaphore(id).blocked.sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getSemaphoreWaitMillis() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (StationStats.SemaphoreId id : StationStats.SemaphoreId.values()) {
+            values.put(id.label(), station.stats.semaphore(id).waitNanos.sum() / 1_000_000.0);
+        }
+        return values;
+    }
+}
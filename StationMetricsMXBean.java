@@ -0,0 +1,51 @@
+import java.util.Map;
+
+/**
+ * Live view of one station over JMX, registered as
+ * {@code carwash:type=Station,name=<n>} when the station runs with {@code --jmx}.
+ * Rates and times are in station time, which is simulated time in headless runs.
+ */
+public interface StationMetricsMXBean {
+
+    String getName();
+
+    /** NEW, RUNNING, DRAINING (no longer accepting cars) or TERMINATED. */
+    String getState();
+
+    long getCarsServiced();
+
+    /** Cars that found the waiting area full and drove off (--balk). */
+    long getCarsBalked();
+
+    /** Cars the token bucket turned away at the entrance. */
+    long getCarsRejected();
+
+    /** Cars that ran out of patience before a pump started on them. */
+    long getCarsReneged();
+
+    /** Cars dispatched to the station that have not left yet. */
+    int getCarsInStation();
+
+    /** Cars in the waiting area that no pump has claimed yet. */
+    int getQueueDepth();
+
+    /** Cars serviced per second since the pumps started. */
+    double getThroughputPerSecond();
+
+    /** Share of the time since the start each pump spent servicing, 0-1. */
+    double[] getPumpUtilization();
+
+    double getWaitP50Millis();
+
+    double getWaitP90Millis();
+
+    double getWaitP99Millis();
+
+    double getEndToEndP99Millis();
+
+    Map<String, Long> getSemaphoreAcquires();
+
+    Map<String, Long> getSemaphoreBlocked();
+
+    Map<String, Double> getSemaphoreWaitMillis();
+}
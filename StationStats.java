@@ -0,0 +1,211 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of one station. Every shard has its own, so
+ * stations never write to each other's cache lines; the fleet totals printed at the
+ * end are the sum of all shards.
+ *
+ * Counters are {@link LongAdder}s: each one spreads concurrent increments over
+ * striped cells and only sums them when read, so cars and pumps updating the same
+ * counter do not bounce one cache line between cores. Reads are only exact once
+ * the writers have stopped, which is all the end-of-run report needs.
+ */
+class StationStats {
+
+    /** The station's semaphores; every car's completion signal counts as "serviced". */
+    enum SemaphoreId {
+        MUTEX, EMPTY, FULL, PUMPS, SERVICED;
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Acquires of one semaphore, split by whether the caller had to block, and timed
+     * waits that gave up: those blocked and waited too, but acquired nothing.
+     */
+    static final class SemaphoreCounters {
+        // which semaphore of which station, for the journal
+        final int station;
+        final SemaphoreId id;
+        final LongAdder acquires = new LongAdder();
+        final LongAdder blocked = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder timedOut = new LongAdder();
+
+        SemaphoreCounters(int station, SemaphoreId id) {
+            this.station = station;
+            this.id = id;
+        }
+
+        void record(boolean didBlock, long waitedNanos) {
+            acquires.increment();
+            if (didBlock) {
+                blocked.increment();
+                waitNanos.add(waitedNanos);
+            }
+        }
+
+        void recordTimeout(long waitedNanos) {
+            timedOut.increment();
+            blocked.increment();
+            waitNanos.add(waitedNanos);
+        }
+
+        void add(SemaphoreCounters other) {
+            acquires.add(other.acquires.sum());
+            blocked.add(other.blocked.sum());
+            waitNanos.add(other.waitNanos.sum());
+            timedOut.add(other.timedOut.sum());
+        }
+    }
+
+    /** Work done by one pump. */
+    static final class PumpCounters {
+        final LongAdder carsServiced = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+
+        void add(PumpCounters other) {
+            carsServiced.add(other.carsServiced.sum());
+            busyNanos.add(other.busyNanos.sum());
+        }
+    }
+
+    /** Cars of one service type: how many, the bay time they took and how long they waited. */
+    static final class TypeCounters {
+        final LongAdder carsServiced = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        final LatencyHistogram wait = new LatencyHistogram();
+
+        void add(TypeCounters other) {
+            carsServiced.add(other.carsServiced.sum());
+            busyNanos.add(other.busyNanos.sum());
+            wait.add(other.wait);
+        }
+    }
+
+    private static final SemaphoreId[] SEMAPHORES = SemaphoreId.values();
+
+    private final SemaphoreCounters[] semaphores = new SemaphoreCounters[SEMAPHORES.length];
+    private final PumpCounters[] pumps;
+    // time cars spend on their own bookkeeping (logging, queue operations)
+    final LongAdder carWorkNanos = new LongAdder();
+    final LongAdder carsServiced = new LongAdder();
+    // cars that left without service (see AdmissionControl): found the waiting area
+    // full, got no token from the bucket, or ran out of patience
+    final LongAdder carsBalked = new LongAdder();
+    final LongAdder carsRejected = new LongAdder();
+    final LongAdder carsReneged = new LongAdder();
+    final LatencyMetrics latency = new LatencyMetrics();
+    private final LatencyHistogram[] waitByPriority = new LatencyHistogram[Car.Priority.values().length];
+    // only filled in when cars have service types (see ServiceStation.typed)
+    private final TypeCounters[] types = new TypeCounters[ServiceType.values().length];
+
+    /** Fleet-wide totals, for adding up the stations. */
+    StationStats(int numPumps) {
+        this(-1, numPumps);
+    }
+
+    StationStats(int station, int numPumps) {
+        for (int i = 0; i < semaphores.length; i++) {
+            semaphores[i] = new SemaphoreCounters(station, SEMAPHORES[i]);
+        }
+        for (int i = 0; i < waitByPriority.length; i++) {
+            waitByPriority[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < types.length; i++) {
+            types[i] = new TypeCounters();
+        }
+        pumps = new PumpCounters[numPumps];
+        for (int i = 0; i < numPumps; i++) {
+            pumps[i] = new PumpCounters();
+        }
+    }
+
+    SemaphoreCounters semaphore(SemaphoreId id) {
+        return semaphores[id.ordinal()];
+    }
+
+    /** Arrival-to-service wait of the cars of one priority class. */
+    LatencyHistogram waitByPriority(Car.Priority priority) {
+        return waitByPriority[priority.ordinal()];
+    }
+
+    TypeCounters type(ServiceType type) {
+        return types[type.ordinal()];
+    }
+
+    PumpCounters pump(int pumpId) {
+        return pumps[pumpId - 1];
+    }
+
+    int numPumps() {
+        return pumps.length;
+    }
+
+    long totalWaitNanos() {
+        long sum = 0;
+        for (SemaphoreCounters c : semaphores) sum += c.waitNanos.sum();
+        return sum;
+    }
+
+    /** Completed waits plus timed waits that gave up. */
+    long semaphoreWaitCount() {
+        long sum = 0;
+        for (SemaphoreCounters c : semaphores) sum += c.acquires.sum() + c.timedOut.sum();
+        return sum;
+    }
+
+    long totalWorkNanos() {
+        long sum = carWorkNanos.sum();
+        for (PumpCounters p : pumps) sum += p.busyNanos.sum();
+        return sum;
+    }
+
+    /** Adds everything recorded by {@code other}, which must have as many pumps. */
+    void add(StationStats other) {
+        for (int i = 0; i < semaphores.length; i++) {
+            semaphores[i].add(other.semaphores[i]);
+        }
+        for (int i = 0; i < pumps.length; i++) {
+            pumps[i].add(other.pumps[i]);
+        }
+        carWorkNanos.add(other.carWorkNanos.sum());
+        carsServiced.add(other.carsServiced.sum());
+        carsBalked.add(other.carsBalked.sum());
+        carsRejected.add(other.carsRejected.sum());
+        carsReneged.add(other.carsReneged.sum());
+        latency.add(other.latency);
+        for (int i = 0; i < waitByPriority.length; i++) {
+            waitByPriority[i].add(other.waitByPriority[i]);
+        }
+        for (int i = 0; i < types.length; i++) {
+            types[i].add(other.types[i]);
+        }
+    }
+
+    /** Contention table, one row per semaphore, and the work of every pump. */
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-10s %12s %12s %9s %14s %14s %10s%n",
+                "Semaphore", "acquires", "blocked", "blocked%", "wait (ms)", "per block", "timed out"));
+        for (SemaphoreId id : SEMAPHORES) {
+            SemaphoreCounters c = semaphore(id);
+            long acquires = c.acquires.sum();
+            long blocked = c.blocked.sum();
+            long timedOut = c.timedOut.sum();
+            long attempts = acquires + timedOut;
+            double waitMs = c.waitNanos.sum() / 1_000_000.0;
+            sb.append(String.format("%-10s %12d %12d %8.2f%% %14.2f %14.3f %10d%n", id.label(), acquires, blocked,
+                    attempts > 0 ? 100.0 * blocked / attempts : 0, waitMs, blocked > 0 ? waitMs / blocked : 0, timedOut));
+        }
+        sb.append(String.format("%n%-10s %12s %14s %14s%n", "Pump", "cars", "busy (ms)", "per car"));
+        for (int i = 0; i < pumps.length; i++) {
+            long cars = pumps[i].carsServiced.sum();
+            double busyMs = pumps[i].busyNanos.sum() / 1_000_000.0;
+            sb.append(String.format("%-10d %12d %14.2f %14.2f%n", i + 1, cars, busyMs, cars > 0 ? busyMs / cars : 0));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One queue per pump. An arriving car joins the shortest queue; a pump serves its
+ * own queue in arrival order and, when that is empty, steals the newest car from
+ * the longest other queue. Each queue has its own lock, so pumps working on their
+ * own queues never contend.
+ */
+class StealingWaitingArea implements WaitingArea {
+    private final ArrayDeque<Car>[] queues;
+    private final ReentrantLock[] locks;
+    // read without the locks to pick a queue; written under them
+    private final AtomicIntegerArray sizes;
+    private final int capacity;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    StealingWaitingArea(int capacity, int numPumps) {
+        if (capacity <= 0) throw new IllegalArgumentException("Waiting area capacity must be positive.");
+        this.capacity = capacity;
+        this.queues = new ArrayDeque[numPumps];
+        this.locks = new ReentrantLock[numPumps];
+        this.sizes = new AtomicIntegerArray(numPumps);
+        for (int i = 0; i < numPumps; i++) {
+            queues[i] = new ArrayDeque<>();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void put(Car car) {
+        int n = queues.length;
+        // random starting point so ties do not always land on pump 1
+        int start = ThreadLocalRandom.current().nextInt(n);
+        int best = start;
+        for (int k = 1; k < n; k++) {
+            int i = (start + k) % n;
+            if (sizes.get(i) < sizes.get(best)) best = i;
+        }
+        locks[best].lock();
+        try {
+            queues[best].addLast(car);
+            sizes.incrementAndGet(best);
+        } finally {
+            locks[best].unlock();
+        }
+    }
+
+    @Override
+    public Car take(int pumpId) {
+        int own = pumpId - 1;
+        // the caller holds a full permit, so a car is queued somewhere; a scan can
+        // still miss it while other pumps move through the queues, so retry
+        for (int spins = 0; ; spins++) {
+            Car car = poll(own, true);
+            if (car != null) return car;
+            int victim = -1;
+            for (int i = 0; i < queues.length; i++) {
+                if (i != own && sizes.get(i) > 0 && (victim < 0 || sizes.get(i) > sizes.get(victim))) victim = i;
+            }
+            if (victim >= 0 && (car = poll(victim, false)) != null) return car;
+            BoundedRing.backOff(spins);
+        }
+    }
+
+    private Car poll(int i, boolean head) {
+        if (sizes.get(i) == 0) return null;
+        locks[i].lock();
+        try {
+            Car car = head ? queues[i].pollFirst() : queues[i].pollLast();
+            if (car != null) sizes.decrementAndGet(i);
+            return car;
+        } finally {
+            locks[i].unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        int sum = 0;
+        for (int i = 0; i < queues.length; i++) sum += sizes.get(i);
+        return sum;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,88 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How Car and Pump runnables are mapped onto threads.
+ *
+ * Virtual threads are created through reflection so the station still compiles and
+ * runs on JDKs older than 21; asking for them there fails with a clear message.
+ */
+enum ThreadMode {
+    /** One platform thread per car, as in the original assignment. */
+    PLATFORM,
+    /** Cars reuse platform threads from a cached pool. */
+    POOLED,
+    /** One virtual thread per car and per pump (Java 21+). */
+    VIRTUAL;
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_UNSTARTED;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method unstarted = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class);
+            unstarted = builder.getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            // pre-21 runtime: VIRTUAL is unavailable
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_UNSTARTED = unstarted;
+    }
+
+    static ThreadMode parse(String value) {
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid thread mode: " + value + " (expected platform, pooled or virtual)");
+        }
+    }
+
+    static boolean virtualThreadsSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /** Fails fast if this mode cannot run on the current JVM. */
+    void checkSupported() {
+        if (this == VIRTUAL && !virtualThreadsSupported()) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer (running "
+                    + System.getProperty("java.version") + ").");
+        }
+    }
+
+    /**
+     * Creates an unstarted thread. Virtual threads are always daemon threads, so the
+     * daemon flag only applies to platform threads.
+     */
+    Thread newThread(Runnable task, String name, boolean daemon) {
+        if (this == VIRTUAL) {
+            checkSupported();
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+                return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create virtual thread " + name, e);
+            }
+        }
+        Thread t = new Thread(task, name);
+        t.setDaemon(daemon);
+        return t;
+    }
+
+    /** Shared pool for car runnables, or null when every car gets its own thread. */
+    ExecutorService newCarPool() {
+        if (this != POOLED) return null;
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary arrival traces.
+ *
+ * A 32-byte header (magic "CWTR", version, record size, record count, seed of the
+ * generator that wrote it) is followed by one 9-byte record per car: gap since the
+ * previous arrival in ms (int), service time in ms (int) and flags (byte, bit 0 set
+ * for fleet cars, bits 1-2 the service type; 0 is BASIC, so older traces read as
+ * all-BASIC). Everything is little-endian.
+ *
+ * Both directions go through memory-mapped windows of a few megabytes that are
+ * remapped as the file is walked, so a trace of any length is written and replayed
+ * without ever being held in memory as a whole.
+ */
+final class TraceFile {
+
+    static final int MAGIC = 0x52545743; // "CWTR" read as a little-endian int
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 9;
+    private static final int FLAG_FLEET = 1;
+    private static final int TYPE_SHIFT = 1;
+    private static final int TYPE_MASK = 3;
+    private static final ServiceType[] TYPES = ServiceType.values();
+    private static final long WINDOW_RECORDS = (8L << 20) / RECORD_BYTES;
+
+    private TraceFile() {}
+
+    /** Writes the first {@code count} arrivals of the workload to a new trace file. */
+    static void write(Path path, Workload workload, long count, long seed) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long written = 0;
+            MappedByteBuffer window = null;
+            while (written < count && workload.next()) {
+                if (window == null || !window.hasRemaining()) {
+                    long records = Math.min(WINDOW_RECORDS, count - written);
+                    window = channel.map(FileChannel.MapMode.READ_WRITE,
+                            HEADER_BYTES + written * RECORD_BYTES, records * RECORD_BYTES);
+                    window.order(ByteOrder.LITTLE_ENDIAN);
+                }
+                window.putInt(toInt(workload.gapMillis()));
+                window.putInt(toInt(workload.serviceMillis()));
+                window.put((byte) ((workload.priority() == Car.Priority.FLEET ? FLAG_FLEET : 0)
+                        | workload.serviceType().ordinal() << TYPE_SHIFT));
+                written++;
+            }
+            if (window != null) window.force();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_BYTES).putLong(written).putLong(seed);
+            header.flip();
+            channel.write(header, 0);
+            // a workload that ran dry leaves less than was mapped
+            channel.truncate(HEADER_BYTES + written * RECORD_BYTES);
+        }
+    }
+
+    private static int toInt(long millis) {
+        if (millis < 0 || millis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Time does not fit a trace record: " + millis + " ms");
+        }
+        return (int) millis;
+    }
+
+    static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+
+    /** Replays a trace file front to back. */
+    static final class Reader implements Workload {
+        private final FileChannel channel;
+        private final long count;
+        private final long seed;
+        private long read;
+        private MappedByteBuffer window;
+
+        private long gapMillis;
+        private long serviceMillis;
+        private Car.Priority priority;
+        private ServiceType serviceType;
+
+        private Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                while (header.hasRemaining()) {
+                    if (channel.read(header) < 0) break;
+                }
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                    throw new IOException(path + " is not a car wash trace.");
+                }
+                short version = header.getShort();
+                short recordBytes = header.getShort();
+                if (version != VERSION || recordBytes != RECORD_BYTES) {
+                    throw new IOException(path + ": unsupported trace version " + version + ".");
+                }
+                this.count = header.getLong();
+                this.seed = header.getLong();
+                if (channel.size() < HEADER_BYTES + count * RECORD_BYTES) {
+                    throw new IOException(path + " is truncated: header promises " + count + " records.");
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        long seed() {
+            return seed;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (read >= count) return false;
+            if (window == null || !window.hasRemaining()) {
+                long records = Math.min(WINDOW_RECORDS, count - read);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + read * RECORD_BYTES,
+                        records * RECORD_BYTES);
+                window.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            gapMillis = window.getInt() & 0xFFFFFFFFL;
+            serviceMillis = window.getInt() & 0xFFFFFFFFL;
+            int flags = window.get();
+            priority = (flags & FLAG_FLEET) != 0 ? Car.Priority.FLEET : Car.Priority.WALK_IN;
+            int type = flags >> TYPE_SHIFT & TYPE_MASK;
+            serviceType = type < TYPES.length ? TYPES[type] : ServiceType.BASIC;
+            read++;
+            return true;
+        }
+
+        @Override
+        public long gapMillis() {
+            return gapMillis;
+        }
+
+        @Override
+        public long serviceMillis() {
+            return serviceMillis;
+        }
+
+        @Override
+        public Car.Priority priority() {
+            return priority;
+        }
+
+        @Override
+        public ServiceType serviceType() {
+            return serviceType;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Virtual clock for headless runs. Time only moves when every registered
+ * participant is blocked (sleeping or waiting on a {@link Semaphore}); the clock then
+ * jumps straight to the earliest pending wake-up. Sleepers are released one at a
+ * time in (wake time, arrival order) so a run replays the same event order as the
+ * real-time station, just without the wall-clock waiting. Each station has its own
+ * clock, so stations and runs that do not share one never contend for its lock.
+ */
+class VirtualClock implements SimClock {
+
+    /**
+     * A blocked or sleeping participant. A thread waits for one thing at a time, so
+     * each thread reuses its own waiter instead of allocating one per wait; it is only
+     * rearmed while it is in no queue. Waiters park their thread directly, since a
+     * Condition would allocate a node for every await.
+     */
+    static final class Waiter implements Comparable<Waiter> {
+        private final Thread thread;
+        private long wakeAt;
+        private long seq;
+        // also queued as a sleeper, so the clock wakes it if nobody hands it off in time
+        private boolean timed;
+        private volatile boolean woken;
+
+        private Waiter(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            if (wakeAt != o.wakeAt) return Long.compare(wakeAt, o.wakeAt);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> sleepers = new PriorityQueue<>();
+    private final ThreadLocal<Waiter> waiters = ThreadLocal.withInitial(() -> new Waiter(Thread.currentThread()));
+    private final long epochMillis = System.currentTimeMillis();
+    private volatile long nowNanos;
+    private long sequence;
+    // the station's car feeder counts as the first participant from the start
+    private int active = 1;
+
+    @Override
+    public long nanoTime() {
+        return nowNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epochMillis + nowNanos / 1_000_000L;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (millis <= 0) return;
+        lock.lock();
+        try {
+            Waiter w = arm(nowNanos + millis * 1_000_000L);
+            sleepers.add(w);
+            active--;
+            advanceIfIdle();
+            try {
+                while (!w.woken) park();
+            } catch (InterruptedException e) {
+                if (!w.woken) {
+                    sleepers.remove(w);
+                    active++;
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void register() {
+        lock.lock();
+        try {
+            active++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deregister() {
+        lock.lock();
+        try {
+            active--;
+            advanceIfIdle();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- hooks for Semaphore; the caller must hold the lock ---
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    /** The calling thread's waiter, ready for a new wait. */
+    Waiter newWaiter() {
+        return arm(0L);
+    }
+
+    private Waiter arm(long wakeAt) {
+        Waiter w = waiters.get();
+        w.wakeAt = wakeAt;
+        w.seq = sequence++;
+        w.timed = false;
+        w.woken = false;
+        return w;
+    }
+
+    /** Parks the calling participant until another one hands it off. */
+    void block(Waiter w) {
+        active--;
+        advanceIfIdle();
+        boolean interrupted = false;
+        while (!w.woken) {
+            try {
+                park();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Like {@link #block}, but the clock wakes the participant itself at station time
+     * {@code wakeAt} unless another one hands it off first.
+     */
+    void blockUntil(Waiter w, long wakeAt) {
+        w.wakeAt = wakeAt;
+        w.timed = true;
+        sleepers.add(w);
+        block(w);
+    }
+
+    /** Withdraws the wake-up of a participant blocked by {@link #blockUntil}; call before handing it off. */
+    void cancelTimeout(Waiter w) {
+        if (w.timed) sleepers.remove(w);
+    }
+
+    /** Marks a blocked participant runnable again, before it actually wakes up. */
+    void handOff(Waiter w) {
+        w.woken = true;
+        active++;
+        LockSupport.unpark(w.thread);
+    }
+
+    /** Releases the lock while the calling thread parks, like Condition.await. */
+    private void park() throws InterruptedException {
+        lock.unlock();
+        try {
+            LockSupport.park(this);
+        } finally {
+            lock.lock();
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    private void advanceIfIdle() {
+        if (active > 0 || sleepers.isEmpty()) return;
+        Waiter next = sleepers.poll();
+        if (next.wakeAt > nowNanos) nowNanos = next.wakeAt;
+        handOff(next);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Bounded waiting area between arriving cars and the pumps. Which waiting car a
+ * pump gets next is up to the implementation; see {@link PumpScheduler}.
+ *
+ * Capacity is still enforced by the station's {@code empty}/{@code full}
+ * semaphores: a car only calls {@link #put} while holding an empty slot and a pump
+ * only calls {@link #take} while holding a full one, so an implementation never
+ * has to wait for space or for a car beyond a producer or consumer that is
+ * mid-operation.
+ */
+interface WaitingArea {
+
+    void put(Car car);
+
+    /** Removes the next car for the given pump (1-based). */
+    Car take(int pumpId);
+
+    /**
+     * Removes the next {@code count} cars for the given pump into {@code into}; the
+     * caller holds {@code count} full permits. Implementations behind a lock take
+     * them all in one critical section.
+     */
+    default void takeBatch(int pumpId, Car[] into, int count) {
+        for (int i = 0; i < count; i++) {
+            into[i] = take(pumpId);
+        }
+    }
+
+    /**
+     * A queued car has given up. It stays queued until a pump takes and skips it;
+     * this only lets implementations that plan ahead forget about it.
+     */
+    default void abandoned(Car car) {}
+
+    /** Approximate number of waiting cars; only used for display. */
+    int size();
+
+    int capacity();
+
+    static WaitingArea create(String kind, int capacity, Semaphore mutex) {
+        switch (kind) {
+            case "ring":
+                return new RingWaitingArea(capacity);
+            case "locked":
+                return new LockedWaitingArea(capacity, mutex);
+            default:
+                throw new IllegalArgumentException("Invalid waiting area: " + kind + " (expected ring or locked)");
+        }
+    }
+}
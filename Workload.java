@@ -0,0 +1,34 @@
+import java.io.IOException;
+
+/**
+ * A stream of car arrivals: for each car, the gap since the previous arrival, its
+ * service time and its customer class. Used as a cursor, so generating or replaying
+ * millions of cars allocates nothing per car:
+ *
+ * <pre>
+ * while (workload.next()) {
+ *     clock.sleep(workload.gapMillis());
+ *     ... workload.serviceMillis(), workload.priority() ...
+ * }
+ * </pre>
+ */
+interface Workload extends AutoCloseable {
+
+    /** Moves to the next arrival; false when the workload is exhausted. */
+    boolean next() throws IOException;
+
+    /** Time between the previous arrival and this one; 0 for simultaneous arrivals. */
+    long gapMillis();
+
+    long serviceMillis();
+
+    Car.Priority priority();
+
+    /** What the car comes in for; workloads without service types only have BASIC cars. */
+    default ServiceType serviceType() {
+        return ServiceType.BASIC;
+    }
+
+    @Override
+    default void close() throws IOException {}
+}
@@ -0,0 +1,175 @@
+import java.util.SplittableRandom;
+
+/**
+ * Seeded, endless arrival generators. The same kind, rate and seed always produce
+ * the same arrivals.
+ *
+ * UNIFORM is the station's original workload: gaps uniform in 500-1500 ms and
+ * service times uniform in 1000-3000 ms. The other kinds draw exponential service
+ * times with a mean of 2000 ms and differ in how arrivals are spread over time:
+ * POISSON at a constant rate, MMPP alternating between calm and bursty periods,
+ * DIURNAL following a daily sine wave. All three average {@code ratePerSecond};
+ * UNIFORM ignores it.
+ */
+class WorkloadGenerator implements Workload {
+
+    enum Kind {
+        UNIFORM, POISSON, MMPP, DIURNAL;
+
+        static Kind parse(String value) {
+            try {
+                return valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid workload: " + value
+                        + " (expected uniform, poisson, mmpp or diurnal)");
+            }
+        }
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final double MEAN_SERVICE_MS = 2000;
+    // MMPP: half the mean rate for 120 s on average, then three times it for 30 s,
+    // which averages out to the mean rate
+    private static final double CALM_FACTOR = 0.5;
+    private static final double BURST_FACTOR = 3.0;
+    private static final double CALM_MEAN_MS = 120_000;
+    private static final double BURST_MEAN_MS = 30_000;
+    // DIURNAL: rate swings between 20% and 180% of the mean over one simulated day
+    private static final double DAY_MS = 86_400_000;
+    private static final double DAY_AMPLITUDE = 0.8;
+
+    private final Kind kind;
+    private final SplittableRandom random;
+    private final double ratePerMs;
+    private final int fleetPercent;
+    private final int scale;
+    // exact time of the current arrival; gaps are whole milliseconds of its rounding
+    private double nowMs;
+    private long emittedMs;
+    private boolean started;
+    private boolean burst;
+    private double stateEndsMs;
+
+    private long gapMillis;
+    private long serviceMillis;
+    private Car.Priority priority;
+    // null: every car is BASIC with the kind's own service times; otherwise the
+    // percentage of cars of each ServiceType, which then draws the service time
+    private int[] serviceMix;
+    private ServiceType serviceType = ServiceType.BASIC;
+
+    /**
+     * @param scale arrivals are this many times as frequent, so that each of
+     *              {@code scale} stations sees the configured rate
+     */
+    WorkloadGenerator(Kind kind, double ratePerSecond, int fleetPercent, int scale, long seed) {
+        this(kind, ratePerSecond, fleetPercent, scale, new SplittableRandom(seed));
+    }
+
+    /** Draws from {@code random}, for example one of several streams split from a common root. */
+    WorkloadGenerator(Kind kind, double ratePerSecond, int fleetPercent, int scale, SplittableRandom random) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("Arrival rate must be positive.");
+        this.kind = kind;
+        this.random = random;
+        this.ratePerMs = ratePerSecond * scale / 1000.0;
+        this.fleetPercent = fleetPercent;
+        this.scale = scale;
+        this.stateEndsMs = exponential(1 / CALM_MEAN_MS);
+    }
+
+    @Override
+    public boolean next() {
+        if (kind == Kind.UNIFORM) {
+            // the original arrival loop: first car at once, then 500-1500 ms apart
+            gapMillis = started ? ((long) (random.nextDouble() * 1000) + 500) / scale : 0;
+            serviceMillis = (long) (random.nextDouble() * 2000) + 1000;
+        } else {
+            nowMs = nextArrival(nowMs);
+            long at = Math.round(nowMs);
+            gapMillis = at - emittedMs;
+            emittedMs = at;
+            serviceMillis = Math.max(1, Math.round(exponential(1 / MEAN_SERVICE_MS)));
+        }
+        if (serviceMix != null) {
+            int draw = random.nextInt(100);
+            int type = 0;
+            while (draw >= serviceMix[type]) {
+                draw -= serviceMix[type];
+                type++;
+            }
+            serviceType = ServiceType.values()[type];
+            serviceMillis = serviceType.drawServiceMillis(random);
+        }
+        started = true;
+        priority = random.nextInt(100) < fleetPercent ? Car.Priority.FLEET : Car.Priority.WALK_IN;
+        return true;
+    }
+
+    /** Gives each car a service type, {@code percents[type.ordinal()]} percent of them each; they add up to 100. */
+    void setServiceMix(int[] percents) {
+        this.serviceMix = percents.clone();
+    }
+
+    /** Long-run average arrivals per second over all {@code scale} stations. */
+    double arrivalsPerSecond() {
+        return kind == Kind.UNIFORM ? scale : ratePerMs * 1000;
+    }
+
+    /** Long-run average service time; UNIFORM's 1000-3000 ms averages out the same. */
+    double meanServiceMillis() {
+        return MEAN_SERVICE_MS;
+    }
+
+    private double nextArrival(double t) {
+        switch (kind) {
+            case MMPP:
+                // exponential gaps are memoryless, so a draw that crosses a state change
+                // can be discarded and redrawn at the new rate from the change onwards
+                while (true) {
+                    double candidate = t + exponential(ratePerMs * (burst ? BURST_FACTOR : CALM_FACTOR));
+                    if (candidate <= stateEndsMs) return candidate;
+                    t = stateEndsMs;
+                    burst = !burst;
+                    stateEndsMs = t + exponential(1 / (burst ? BURST_MEAN_MS : CALM_MEAN_MS));
+                }
+            case DIURNAL: {
+                // thinning: draw at the peak rate, keep each arrival with probability rate(t) / peak
+                double peak = ratePerMs * (1 + DAY_AMPLITUDE);
+                while (true) {
+                    t += exponential(peak);
+                    double rate = ratePerMs * (1 + DAY_AMPLITUDE * Math.sin(2 * Math.PI * t / DAY_MS));
+                    if (random.nextDouble() * peak < rate) return t;
+                }
+            }
+            default:
+                return t + exponential(ratePerMs);
+        }
+    }
+
+    private double exponential(double rate) {
+        return -Math.log(1 - random.nextDouble()) / rate;
+    }
+
+    @Override
+    public long gapMillis() {
+        return gapMillis;
+    }
+
+    @Override
+    public long serviceMillis() {
+        return serviceMillis;
+    }
+
+    @Override
+    public Car.Priority priority() {
+        return priority;
+    }
+
+    @Override
+    public ServiceType serviceType() {
+        return serviceType;
+    }
+}
@@ -0,0 +1,78 @@
+package carwash.bench;
+
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of pushing updates through CarWashModel's PropertyChangeSupport: pump
+ * progress (firePumpChanged) and log lines (fireLog). Listeners only consume the
+ * event, so this is the dispatch cost without any Swing work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelDispatchBench {
+
+    @Param({"1", "8"})
+    public int pumps;
+
+    @Param({"0", "1", "4"})
+    public int listeners;
+
+    private Object model;
+    private int tick;
+    private Object lastEvent;
+
+    @Setup
+    public void setup() throws Throwable {
+        model = (Object) Station.NEW_MODEL.invokeExact(pumps);
+        PropertyChangeListener l = evt -> lastEvent = evt;
+        for (int i = 0; i < listeners; i++) {
+            Station.ADD_LISTENER.invokeExact(model, l);
+        }
+    }
+
+    private void progress() throws Throwable {
+        int t = tick++;
+        Station.SET_PUMP_PROGRESS.invokeExact(model, t % pumps, t % 101, 1000L);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void pumpProgress() throws Throwable {
+        progress();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void pumpProgress4Threads() throws Throwable {
+        progress();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void log() throws Throwable {
+        Station.FIRE_LOG.invokeExact(model, "Pump 1: Car-1 begins service.");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void log4Threads() throws Throwable {
+        Station.FIRE_LOG.invokeExact(model, "Pump 1: Car-1 begins service.");
+    }
+}
@@ -0,0 +1,75 @@
+package carwash.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One waitSemaphore/signalSemaphore round trip around a short critical section,
+ * the way a pump holds a bay. {@code permits} plays the role of the bay count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemaphoreBench {
+
+    @Param({"aqs", "aqs-fair", "monitor"})
+    public String impl;
+
+    @Param({"1", "4"})
+    public int permits;
+
+    private Object semaphore;
+
+    @Setup
+    public void setup() throws Throwable {
+        semaphore = Station.newSemaphore(impl, permits);
+    }
+
+    private void roundTrip() throws Throwable {
+        Station.WAIT.invokeExact(semaphore);
+        try {
+            Blackhole.consumeCPU(32);
+        } finally {
+            Station.SIGNAL.invokeExact(semaphore);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads01() throws Throwable {
+        roundTrip();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads04() throws Throwable {
+        roundTrip();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void threads16() throws Throwable {
+        roundTrip();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void threads64() throws Throwable {
+        roundTrip();
+    }
+}
@@ -0,0 +1,130 @@
+package carwash.bench;
+
+import java.beans.PropertyChangeListener;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Handles onto the station classes.
+ *
+ * The station lives in the unnamed package, which code in a named package cannot
+ * import, and JMH rejects benchmarks in the unnamed package. The handles are
+ * static finals, so the JIT constant-folds them and the indirection does not show
+ * up in the measurements.
+ */
+final class Station {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /** (int permits, boolean fair) -> Semaphore */
+    static final MethodHandle NEW_SEMAPHORE;
+    /** (int permits) -> MonitorSemaphore */
+    static final MethodHandle NEW_MONITOR_SEMAPHORE;
+    /** (Semaphore) -> void */
+    static final MethodHandle WAIT;
+    /** (Semaphore) -> void */
+    static final MethodHandle SIGNAL;
+    /** (Semaphore, long timeoutMillis) -> boolean */
+    static final MethodHandle TRY_WAIT;
+
+    /** (String kind, int capacity, Semaphore mutex) -> WaitingArea */
+    static final MethodHandle NEW_WAITING_AREA;
+    /** (WaitingArea, Car) -> void */
+    static final MethodHandle PUT;
+    /** (WaitingArea, int pumpId) -> Car */
+    static final MethodHandle TAKE;
+    /** (String[] args) -> StationConfig */
+    static final MethodHandle PARSE_CONFIG;
+    /** (int index, StationConfig config) -> ServiceStation */
+    static final MethodHandle NEW_STATION;
+    /** (long id, ServiceStation station, long serviceMillis, Car.Priority priority, ServiceType type) -> Car */
+    static final MethodHandle NEW_CAR;
+
+    /** (int numPumps) -> CarWashModel */
+    static final MethodHandle NEW_MODEL;
+    /** (CarWashModel, PropertyChangeListener) -> void */
+    static final MethodHandle ADD_LISTENER;
+    /** (CarWashModel, int pumpId, int percent, long remainingMs) -> void */
+    static final MethodHandle SET_PUMP_PROGRESS;
+    /** (CarWashModel, String message) -> void */
+    static final MethodHandle FIRE_LOG;
+
+    static {
+        try {
+            Class<?> semaphore = Class.forName("Semaphore");
+            Class<?> monitor = Class.forName("MonitorSemaphore");
+            Class<?> area = Class.forName("WaitingArea");
+            Class<?> car = Class.forName("Car");
+            Class<?> station = Class.forName("ServiceStation");
+            Class<?> config = Class.forName("StationConfig");
+            Class<?> priority = Class.forName("Car$Priority");
+            Class<?> serviceType = Class.forName("ServiceType");
+            Class<?> model = Class.forName("CarWashModel");
+
+            NEW_SEMAPHORE = constructor(semaphore, int.class, boolean.class);
+            NEW_MONITOR_SEMAPHORE = constructor(monitor, int.class);
+            WAIT = method(semaphore, "waitSemaphore");
+            SIGNAL = method(semaphore, "signalSemaphore");
+            TRY_WAIT = method(semaphore, "tryWaitSemaphore", long.class);
+
+            NEW_WAITING_AREA = method(area, "create", String.class, int.class, semaphore);
+            PUT = method(area, "put", car);
+            TAKE = method(area, "take", int.class);
+            PARSE_CONFIG = method(config, "parse", String[].class);
+            NEW_STATION = constructor(station, int.class, config);
+            NEW_CAR = constructor(car, long.class, station, long.class, priority, serviceType);
+
+            NEW_MODEL = constructor(model, int.class);
+            ADD_LISTENER = method(model, "addPropertyChangeListener", PropertyChangeListener.class);
+            SET_PUMP_PROGRESS = method(model, "setPumpProgress", int.class, int.class, long.class);
+            FIRE_LOG = method(model, "fireLog", String.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Station() {}
+
+    /** Creates a semaphore by benchmark parameter name: aqs, aqs-fair or monitor. */
+    static Object newSemaphore(String impl, int permits) throws Throwable {
+        switch (impl) {
+            case "aqs":
+                return (Object) NEW_SEMAPHORE.invokeExact(permits, false);
+            case "aqs-fair":
+                return (Object) NEW_SEMAPHORE.invokeExact(permits, true);
+            case "monitor":
+                return (Object) NEW_MONITOR_SEMAPHORE.invokeExact(permits);
+            default:
+                throw new IllegalArgumentException("Unknown semaphore implementation: " + impl);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... params) throws ReflectiveOperationException {
+        Constructor<?> c = owner.getDeclaredConstructor(params);
+        c.setAccessible(true);
+        return erase(LOOKUP.unreflectConstructor(c));
+    }
+
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... params) throws ReflectiveOperationException {
+        Method m = owner.getDeclaredMethod(name, params);
+        m.setAccessible(true);
+        return erase(LOOKUP.unreflect(m));
+    }
+
+    /** Replaces every station type in the handle's signature with Object. */
+    private static MethodHandle erase(MethodHandle h) {
+        MethodType type = h.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isStationType(type.parameterType(i))) type = type.changeParameterType(i, Object.class);
+        }
+        if (isStationType(type.returnType())) type = type.changeReturnType(Object.class);
+        return h.asType(type);
+    }
+
+    private static boolean isStationType(Class<?> c) {
+        return !c.isPrimitive() && !c.isArray() && c.getPackageName().isEmpty();
+    }
+}
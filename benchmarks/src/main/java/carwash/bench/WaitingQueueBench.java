@@ -0,0 +1,164 @@
+package carwash.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+/**
+ * The waiting-area handoff from Car.run and Pump.run: a car takes an
+ * {@code empty} slot and puts itself into the waiting area, a pump takes a
+ * {@code full} slot and takes a car out. {@code area} selects the original
+ * mutex-guarded LinkedList or the lock-free ring.
+ *
+ * Each invocation performs one car side followed by one pump side. A thread that
+ * only enqueued or only dequeued could be left blocked forever when JMH stops
+ * the other side at the end of an iteration; pairing them keeps every thread
+ * able to finish while the queue still sees {@code threads} concurrent
+ * producers and consumers.
+ *
+ * The {@code pumpsN} groups split the two sides as the station does: 8 car
+ * threads against 1, 3 or 8 pump threads, so the numbers also cover how the
+ * handoff scales with the pump count. Their sides wait with a 1 ms timeout and
+ * give up once JMH ends the iteration, which a plain wait could not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaitingQueueBench {
+
+    @Param({"1", "5", "10"})
+    public int capacity;
+
+    @Param({"ring", "locked"})
+    public String area;
+
+    private Object waitingArea;
+    private Object empty;
+    private Object full;
+    private Object car;
+
+    @Setup
+    public void setup() throws Throwable {
+        Object mutex = Station.newSemaphore("aqs", 1);
+        waitingArea = (Object) Station.NEW_WAITING_AREA.invokeExact(area, capacity, mutex);
+        empty = Station.newSemaphore("aqs", capacity);
+        full = Station.newSemaphore("aqs", 0);
+        // only the car's identity matters here; it never runs
+        Object config = (Object) Station.PARSE_CONFIG.invokeExact(
+                new String[] {"--capacity=" + capacity, "--pumps=1", "--waiting-area=" + area});
+        Object station = (Object) Station.NEW_STATION.invokeExact(0, config);
+        car = (Object) Station.NEW_CAR.invokeExact(1L, station, 1000L, (Object) null, (Object) null);
+    }
+
+    private Object handoff() throws Throwable {
+        // Car.run
+        Station.WAIT.invokeExact(empty);
+        Station.PUT.invokeExact(waitingArea, car);
+        Station.SIGNAL.invokeExact(full);
+
+        // Pump.run
+        Station.WAIT.invokeExact(full);
+        Object taken = (Object) Station.TAKE.invokeExact(waitingArea, 1);
+        Station.SIGNAL.invokeExact(empty);
+        return taken;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads01() throws Throwable {
+        return handoff();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object threads04() throws Throwable {
+        return handoff();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object threads16() throws Throwable {
+        return handoff();
+    }
+
+    @Benchmark
+    @Group("pumps1")
+    @GroupThreads(8)
+    public boolean pumps1Cars(Control control) throws Throwable {
+        return arrive(control);
+    }
+
+    @Benchmark
+    @Group("pumps1")
+    @GroupThreads(1)
+    public Object pumps1Pumps(Control control) throws Throwable {
+        return serve(control);
+    }
+
+    @Benchmark
+    @Group("pumps3")
+    @GroupThreads(8)
+    public boolean pumps3Cars(Control control) throws Throwable {
+        return arrive(control);
+    }
+
+    @Benchmark
+    @Group("pumps3")
+    @GroupThreads(3)
+    public Object pumps3Pumps(Control control) throws Throwable {
+        return serve(control);
+    }
+
+    @Benchmark
+    @Group("pumps8")
+    @GroupThreads(8)
+    public boolean pumps8Cars(Control control) throws Throwable {
+        return arrive(control);
+    }
+
+    @Benchmark
+    @Group("pumps8")
+    @GroupThreads(8)
+    public Object pumps8Pumps(Control control) throws Throwable {
+        return serve(control);
+    }
+
+    /** Car.run on its own; false if the iteration ended before a place was free. */
+    private boolean arrive(Control control) throws Throwable {
+        if (!acquire(empty, control)) return false;
+        Station.PUT.invokeExact(waitingArea, car);
+        Station.SIGNAL.invokeExact(full);
+        return true;
+    }
+
+    /** Pump.run on its own; null if the iteration ended before a car came. */
+    private Object serve(Control control) throws Throwable {
+        if (!acquire(full, control)) return null;
+        Object taken = (Object) Station.TAKE.invokeExact(waitingArea, 1);
+        Station.SIGNAL.invokeExact(empty);
+        return taken;
+    }
+
+    private static boolean acquire(Object semaphore, Control control) throws Throwable {
+        while (!(boolean) Station.TRY_WAIT.invokeExact(semaphore, 1L)) {
+            if (control.stopMeasurement) return false;
+        }
+        return true;
+    }
+}